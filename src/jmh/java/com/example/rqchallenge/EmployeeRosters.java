@@ -0,0 +1,46 @@
+package com.example.rqchallenge;
+
+import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeResponseParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generated employee rosters for benchmarks, same seed gives the same roster
+ */
+public final class EmployeeRosters {
+
+    private static final String[] FIRST_NAMES = {"Tiger", "Garrett", "Ashton", "Cedric", "Airi", "Brielle", "Herrod",
+            "Rhona", "Colleen", "Sonya", "Jena", "Quinn", "Charde", "Haley", "Tatyana", "Michael", "Paul", "Gloria"};
+    private static final String[] LAST_NAMES = {"Nixon", "Winters", "Cox", "Kelly", "Satou", "Williamson", "Chandler",
+            "Davidson", "Hurst", "Frost", "Gaines", "Flynn", "Marshall", "Kennedy", "Fitzpatrick", "Silva", "Byrd", "Little"};
+
+    private EmployeeRosters() {
+    }
+
+    public static List<Employee> generate(int size) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Employee> employees = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            employees.add(new Employee(id, name, random.nextInt(30_000, 800_000), String.valueOf(random.nextInt(18, 67)), ""));
+        }
+        return employees;
+    }
+
+    /**
+     * @param employees
+     * @return upstream response body carrying the roster
+     */
+    public static String toResponse(List<Employee> employees) throws JsonProcessingException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "success");
+        response.put("data", employees);
+        return EmployeeResponseParser.MAPPER.writeValueAsString(response);
+    }
+}
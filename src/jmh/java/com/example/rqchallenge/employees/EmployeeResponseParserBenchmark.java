@@ -0,0 +1,47 @@
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.EmployeeRosters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class EmployeeResponseParserBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    EmployeeResponseParser parser = new EmployeeResponseParser(new SimpleMeterRegistry());
+    byte[] response;
+    String single;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Employee> employees = EmployeeRosters.generate(size);
+        response = EmployeeRosters.toResponse(employees).getBytes(StandardCharsets.UTF_8);
+        single = EmployeeResponseParser.MAPPER.writeValueAsString(
+                Map.of("status", "success", "data", employees.get(0)));
+    }
+
+    /**
+     * Full roster response, streamed from bytes as it is from the network
+     */
+    @Benchmark
+    public List<Employee> readEmployees() throws IOException {
+        return parser.readEmployees(new ByteArrayInputStream(response));
+    }
+
+    @Benchmark
+    public Employee readEmployee() throws IOException {
+        return parser.readEmployee(single);
+    }
+}
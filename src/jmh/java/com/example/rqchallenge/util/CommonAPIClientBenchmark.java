@@ -0,0 +1,87 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.EmployeeRosters;
+import com.example.rqchallenge.config.CommonConfig;
+import com.example.rqchallenge.config.Constants;
+import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeResponseParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * End to end upstream call: okhttp, interceptors, circuit breaker and streaming parse, against a local server
+ */
+@State(Scope.Benchmark)
+public class CommonAPIClientBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    MockWebServer server;
+    CommonAPIClient client;
+    EmployeeResponseParser parser;
+    String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] response = EmployeeRosters.toResponse(EmployeeRosters.generate(size)).getBytes(StandardCharsets.UTF_8);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) {
+                return new MockResponse().setBody(new Buffer().write(response));
+            }
+        });
+        server.start();
+        url = server.url("/api/v1/employees").toString();
+
+        CommonConfig config = new CommonConfig();
+        config.setMaxIdleConnections(5);
+        config.setKeepAliveMillis(300000);
+        config.setMaxRequests(64);
+        config.setMaxRequestsPerHost(64);
+        config.setConnectTimeoutMillis(10000);
+        config.setReadTimeoutMillis(10000);
+        config.setWriteTimeoutMillis(10000);
+        config.setRetryMaxAttempts(1);
+        config.setRetryStatuses(new int[0]);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        client = new CommonAPIClient(config, registry);
+        parser = new EmployeeResponseParser(registry);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.destroy();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public List<Employee> getEmployees() throws Exception {
+        Optional<List<Employee>> employees = client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(),
+                Optional.empty(), parser.getEmployeeList());
+        return employees.orElseThrow();
+    }
+
+    @Benchmark
+    public String getEmployeesAsString() throws Exception {
+        return client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty()).orElseThrow();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import com.example.rqchallenge.config.Constants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load comparison of the request thread models against a slow upstream: a burst of concurrent requests, each blocking
+ * on a synchronous upstream call, served by a Tomcat sized platform thread pool or by one virtual thread per request.
+ * The benchmark score is per burst. Every request of the measured iterations is timed from its submission to its upstream
+ * response, and requests per second with p50 and p99 latency are printed once the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestThreadModelBenchmark {
+
+    // Tomcat default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    String model;
+
+    @Param({"1000", "5000"})
+    int concurrentRequests;
+
+    @Param({"200"})
+    int upstreamDelayMillis;
+
+    MockWebServer server;
+    CommonAPIClient client;
+    ExecutorService requestThreads;
+    String url;
+
+    boolean measuring;
+    long[] latencies = new long[0];
+    int recorded;
+    long burstNanos;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) {
+                return new MockResponse()
+                        .setBody("{\"status\":\"success\",\"data\":{\"id\":1,\"employee_name\":\"Tiger Nixon\"}}")
+                        .setHeadersDelay(upstreamDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        url = server.url("/api/v1/employee/1").toString();
+
+        CommonConfig config = new CommonConfig();
+        config.setVirtualThreadsEnabled("virtual".equals(model));
+        config.setMaxIdleConnections(concurrentRequests);
+        config.setKeepAliveMillis(300000);
+        config.setMaxRequests(concurrentRequests);
+        config.setMaxRequestsPerHost(concurrentRequests);
+        config.setConnectTimeoutMillis(30000);
+        config.setReadTimeoutMillis(30000);
+        config.setWriteTimeoutMillis(30000);
+        config.setRetryMaxAttempts(1);
+        config.setRetryStatuses(new int[0]);
+        client = new CommonAPIClient(config, new SimpleMeterRegistry());
+
+        requestThreads = "virtual".equals(model)
+                ? VirtualThreads.newExecutor("request-")
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    /**
+     * Requests are timed in measurement iterations only, warmup bursts are left out of the percentiles
+     * @param params
+     */
+    @Setup(Level.Iteration)
+    public void startIteration(IterationParams params) {
+        measuring = params.getType() == IterationType.MEASUREMENT;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        report();
+        requestThreads.shutdownNow();
+        client.destroy();
+        server.shutdown();
+    }
+
+    /**
+     * @return time until every request of the burst has its upstream response
+     */
+    @Benchmark
+    public int burst() throws Exception {
+        long[] burstLatencies = new long[concurrentRequests];
+        List<Future<Optional<String>>> responses = new ArrayList<>(concurrentRequests);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrentRequests; i++) {
+            // distinct URLs, so concurrent identical GETs are not coalesced into one call
+            String requestUrl = url + "?request=" + i;
+            int request = i;
+            long submitted = System.nanoTime();
+            responses.add(requestThreads.submit(() -> {
+                try {
+                    return client.getResponseFromDummyAPI(requestUrl, Constants.HttpMethods.GET.toString(), Optional.empty());
+                } finally {
+                    // includes the wait for a free request thread, as a queued Tomcat request would see it
+                    burstLatencies[request] = System.nanoTime() - submitted;
+                }
+            }));
+        }
+        int completed = 0;
+        for (Future<Optional<String>> response : responses) {
+            if (response.get().isPresent()) completed++;
+        }
+        if (measuring) {
+            record(burstLatencies, System.nanoTime() - start);
+        }
+        return completed;
+    }
+
+    private void record(long[] burstLatencies, long nanos) {
+        if (recorded + burstLatencies.length > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, recorded + burstLatencies.length));
+        }
+        System.arraycopy(burstLatencies, 0, latencies, recorded, burstLatencies.length);
+        recorded += burstLatencies.length;
+        burstNanos += nanos;
+    }
+
+    private void report() {
+        if (recorded == 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        System.out.printf("%n%s threads, %d concurrent requests: %.0f requests/s, latency p50 %d ms, p99 %d ms, max %d ms (%d requests)%n",
+                model, concurrentRequests, recorded / (burstNanos / 1e9), percentileMillis(sorted, 50), percentileMillis(sorted, 99),
+                TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]), recorded);
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(rank, 1) - 1]);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.EmployeeRosters;
+import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeSnapshot;
+import com.example.rqchallenge.employees.EmployeeStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class SearchEngineBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    // Integer.MAX_VALUE keeps everything sequential, for comparison with the parallel search pool
+    @Param({"2147483647", "50000"})
+    int parallelThreshold;
+
+    List<Employee> employees;
+    EmployeeSnapshot snapshot;
+    ParallelSearch parallel;
+    SearchEngine searchEngine;
+    NameQuery prefixQuery = new NameQuery("ga co", true, true, 0, 100);
+
+    @Setup
+    public void setUp() {
+        parallel = new ParallelSearch(0, parallelThreshold);
+        searchEngine = new SearchEngine(parallel, new SimpleMeterRegistry());
+        employees = EmployeeRosters.generate(size);
+        snapshot = new EmployeeSnapshot(EmployeeStore.of(employees), parallel, 1, System.currentTimeMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallel.destroy();
+    }
+
+    @Benchmark
+    public List<Employee> searchByName() {
+        return searchEngine.searchByName(snapshot, "cox");
+    }
+
+    @Benchmark
+    public List<Employee> searchByNameShortTerm() {
+        return searchEngine.searchByName(snapshot, "ox");
+    }
+
+    @Benchmark
+    public List<Employee> searchByNamePrefixTokens() {
+        return searchEngine.searchByName(snapshot, prefixQuery);
+    }
+
+    @Benchmark
+    public List<String> getTopRecordsBasedOnSalary() {
+        return searchEngine.getTopRecordsBasedOnSalary(snapshot, 10);
+    }
+
+    @Benchmark
+    public Integer getHighestSalaryOfEmployees() {
+        return searchEngine.getHighestSalaryOfEmployees(snapshot);
+    }
+
+    /**
+     * Snapshot and index build, paid once per roster refresh
+     */
+    @Benchmark
+    public EmployeeSnapshot buildSnapshot() {
+        return new EmployeeSnapshot(EmployeeStore.of(employees), parallel, 2, System.currentTimeMillis());
+    }
+}
@@ -18,4 +18,145 @@ public class CommonConfig {
 
     @Value("${api.entity}")
     public String entity;
+
+    @Value("${employee.snapshot.ttl-ms:30000}")
+    public long snapshotTtlMillis;
+
+    @Value("${employee.snapshot.stale-while-revalidate-ms:300000}")
+    public long snapshotStaleWhileRevalidateMillis;
+
+    @Value("${employee.snapshot.compaction-threshold:1024}")
+    public int snapshotCompactionThreshold;
+
+    @Value("${employee.snapshot.file:}")
+    public String snapshotFile;
+
+    @Value("${employee.id-cache.max-size:10000}")
+    public int idCacheMaxSize;
+
+    @Value("${employee.id-cache.ttl-ms:30000}")
+    public long idCacheTtlMillis;
+
+    @Value("${employee.id-cache.negative-ttl-ms:5000}")
+    public long idCacheNegativeTtlMillis;
+
+    @Value("${employee.response.gzip-enabled:true}")
+    public boolean responseGzipEnabled;
+
+    @Value("${employee.response.gzip-min-bytes:1024}")
+    public int responseGzipMinBytes;
+
+    @Value("${employee.batch.max-size:1000}")
+    public int batchMaxSize;
+
+    @Value("${upstream.batch.concurrency:16}")
+    public int batchConcurrency;
+
+    @Value("${search.parallel.threads:0}")
+    public int searchParallelism;
+
+    @Value("${search.parallel.threshold:50000}")
+    public int searchParallelThreshold;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    public boolean virtualThreadsEnabled;
+
+    @Value("${upstream.pool.max-idle-connections:5}")
+    public int maxIdleConnections;
+
+    @Value("${upstream.pool.keep-alive-ms:300000}")
+    public long keepAliveMillis;
+
+    @Value("${upstream.dispatcher.max-requests:256}")
+    public int maxRequests;
+
+    @Value("${upstream.dispatcher.max-requests-per-host:64}")
+    public int maxRequestsPerHost;
+
+    @Value("${upstream.timeout.connect-ms:10000}")
+    public long connectTimeoutMillis;
+
+    @Value("${upstream.timeout.read-ms:10000}")
+    public long readTimeoutMillis;
+
+    @Value("${upstream.timeout.write-ms:10000}")
+    public long writeTimeoutMillis;
+
+    @Value("${upstream.timeout.call-ms:0}")
+    public long callTimeoutMillis;
+
+    @Value("${upstream.http2-enabled:true}")
+    public boolean http2Enabled;
+
+    @Value("${upstream.compression-enabled:true}")
+    public boolean compressionEnabled;
+
+    @Value("${upstream.retry.max-attempts:3}")
+    public int retryMaxAttempts;
+
+    @Value("${upstream.retry.base-delay-ms:100}")
+    public long retryBaseDelayMillis;
+
+    @Value("${upstream.retry.max-delay-ms:2000}")
+    public long retryMaxDelayMillis;
+
+    @Value("${upstream.retry.statuses:429,502,503,504}")
+    public int[] retryStatuses;
+
+    @Value("${upstream.retry.budget-ratio:0.1}")
+    public double retryBudgetRatio;
+
+    @Value("${upstream.retry.budget-capacity:10}")
+    public double retryBudgetCapacity;
+
+    @Value("${upstream.circuit-breaker.enabled:true}")
+    public boolean circuitBreakerEnabled;
+
+    @Value("${upstream.circuit-breaker.failure-rate-threshold:50}")
+    public double circuitBreakerFailureRateThreshold;
+
+    @Value("${upstream.circuit-breaker.slow-call-rate-threshold:80}")
+    public double circuitBreakerSlowCallRateThreshold;
+
+    @Value("${upstream.circuit-breaker.slow-call-duration-ms:5000}")
+    public long circuitBreakerSlowCallDurationMillis;
+
+    @Value("${upstream.circuit-breaker.window-size:20}")
+    public int circuitBreakerWindowSize;
+
+    @Value("${upstream.circuit-breaker.minimum-calls:10}")
+    public int circuitBreakerMinimumCalls;
+
+    @Value("${upstream.circuit-breaker.open-wait-ms:10000}")
+    public long circuitBreakerOpenWaitMillis;
+
+    @Value("${upstream.circuit-breaker.half-open-calls:3}")
+    public int circuitBreakerHalfOpenCalls;
+
+    @Value("${upstream.coalescing-enabled:true}")
+    public boolean coalescingEnabled;
+
+    @Value("${upstream.hedge.enabled:false}")
+    public boolean hedgeEnabled;
+
+    @Value("${upstream.hedge.delay-percentile:95}")
+    public double hedgeDelayPercentile;
+
+    @Value("${upstream.hedge.min-delay-ms:10}")
+    public long hedgeMinDelayMillis;
+
+    @Value("${upstream.hedge.min-samples:20}")
+    public int hedgeMinSamples;
+
+    @Value("${upstream.hedge.budget-ratio:0.05}")
+    public double hedgeBudgetRatio;
+
+    @Value("${upstream.hedge.budget-capacity:10}")
+    public double hedgeBudgetCapacity;
+
+    @Value("${upstream.conditional.enabled:true}")
+    public boolean conditionalEnabled;
+
+    @Value("${upstream.conditional.max-entries:1000}")
+    public int conditionalMaxEntries;
 }
@@ -8,6 +8,7 @@ import okhttp3.MediaType;
 public class Constants {
     public static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     public static final int TOP_RECORDS = 10;
+    public static final String STALE_HEADER = "X-Data-Stale";
     public static enum HttpMethods{
         GET,
         POST,
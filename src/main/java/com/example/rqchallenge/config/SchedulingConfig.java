@@ -0,0 +1,14 @@
+/*
+ * Scheduling config enables the scheduled snapshot refresh, unless turned off e.g. for tests that must not poll upstream
+ */
+package com.example.rqchallenge.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(value = "employee.snapshot.refresh-enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,36 @@
+/*
+ * Batch result is the outcome of one item of a batch create or delete, returned in the order of the request
+ */
+package com.example.rqchallenge.employees;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILED = "failed";
+
+    private String id;
+    private String status;
+    private Employee employee;
+    private String message;
+
+    public static BatchResult created(Employee employee) {
+        return new BatchResult(String.valueOf(employee.getId()), SUCCESS, employee, null);
+    }
+
+    public static BatchResult deleted(String id, String message) {
+        return new BatchResult(id, SUCCESS, null, message);
+    }
+
+    public static BatchResult failed(String id, String message) {
+        return new BatchResult(id, FAILED, null, message);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Employee delta holds the changes applied to a snapshot since its base roster was built:
+ * base positions removed (deleted or replaced) and employees added, with small indexes of their own.
+ * A patch copies only the delta, so a create or delete costs O(k log k) for k pending changes plus O(log n) ID lookups,
+ * instead of copying the roster and rebuilding its indexes.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.util.AgeIndex;
+import com.example.rqchallenge.util.NameIndex;
+import com.example.rqchallenge.util.ParallelSearch;
+import com.example.rqchallenge.util.SalaryIndex;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+final class EmployeeDelta {
+
+    static final EmployeeDelta EMPTY = new EmployeeDelta(EmployeeStore.empty(), new int[0], EmployeeStore.empty(), ParallelSearch.SEQUENTIAL);
+
+    /** removed base positions, ascending */
+    final int[] removed;
+    final EmployeeStore added;
+    final SalaryIndex addedSalaryIndex;
+    final NameIndex addedNameIndex;
+    final AgeIndex addedAgeIndex;
+    /** salaries of the removed base employees, ascending, employees without salary left out */
+    final int[] removedSalaries;
+    /** stats of the added employees minus those of the removed ones */
+    final RosterStats stats;
+
+    private EmployeeDelta(EmployeeStore base, int[] removed, EmployeeStore added, ParallelSearch parallel) {
+        this.removed = removed;
+        this.added = added;
+        this.addedSalaryIndex = SalaryIndex.of(added, parallel);
+        this.addedNameIndex = NameIndex.of(added, parallel);
+        this.addedAgeIndex = AgeIndex.of(added, parallel);
+        this.removedSalaries = Arrays.stream(removed).map(base::salaryOrMinAt)
+                .filter(salary -> salary != Integer.MIN_VALUE).sorted().toArray();
+        this.stats = RosterStats.change(base, removed, added);
+    }
+
+    /**
+     * @return number of pending changes, compared against the compaction threshold
+     */
+    int size() {
+        return removed.length + added.size();
+    }
+
+    boolean isEmpty() {
+        return removed.length == 0 && added.size() == 0;
+    }
+
+    /**
+     * @param position base position
+     * @return true in case the employee at the base position was deleted or replaced
+     */
+    boolean isRemoved(int position) {
+        return removed.length > 0 && Arrays.binarySearch(removed, position) >= 0;
+    }
+
+    /**
+     * @param salary
+     * @return number of removed base employees earning at least the salary
+     */
+    int removedEarningAtLeast(int salary) {
+        int low = 0;
+        int high = removedSalaries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (removedSalaries[middle] < salary) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return removedSalaries.length - low;
+    }
+
+    /**
+     * @param position base position
+     * @return number of removed base positions up to and including the position
+     */
+    int removedThrough(int position) {
+        int index = Arrays.binarySearch(removed, position);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Copy of this delta with more changes. Added employees replace those with the same ID, in the base or added before.
+     * @param base roster the delta applies to
+     * @param upserts
+     * @param removedIds
+     * @param parallel pool the indexes of the added employees are built on
+     * @return patched delta
+     */
+    EmployeeDelta with(EmployeeStore base, Collection<Employee> upserts, Collection<Integer> removedIds, ParallelSearch parallel) {
+        Set<Integer> dropped = new HashSet<>();
+        removedIds.stream().filter(Objects::nonNull).forEach(dropped::add);
+        upserts.stream().map(Employee::getId).filter(Objects::nonNull).forEach(dropped::add);
+
+        int[] merged = Arrays.copyOf(removed, removed.length + dropped.size());
+        int size = removed.length;
+        for (Integer id : dropped) {
+            for (int position : base.positionsOf(id)) {
+                if (size == merged.length) merged = Arrays.copyOf(merged, size * 2);
+                merged[size++] = position;
+            }
+        }
+        merged = Arrays.stream(merged, 0, size).sorted().distinct().toArray();
+
+        EmployeeStore.Builder builder = added.copy(position -> !dropped.contains(added.idAt(position)), upserts.size());
+        upserts.forEach(builder);
+        return new EmployeeDelta(base, merged, builder.build(), parallel);
+    }
+
+    /**
+     * @param base roster the delta applies to
+     * @return builder holding the base without removed employees, followed by the added ones
+     */
+    EmployeeStore.Builder applyTo(EmployeeStore base) {
+        return base.copy(position -> !isRemoved(position), added.size()).appendAll(added);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Employee fields is a projection of the employee JSON, only the requested fields are written.
+ * Fields are named as in the employee JSON and always written in its order, null values are left out as for the full employee.
+ */
+package com.example.rqchallenge.employees;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+public final class EmployeeFields {
+
+    public static final EmployeeFields ALL = new EmployeeFields(EnumSet.allOf(Field.class));
+
+    private static final ObjectWriter EMPLOYEES_WRITER = EmployeeResponseParser.MAPPER.writerFor(new TypeReference<List<Employee>>() { });
+
+    private final Set<Field> fields;
+
+    private EmployeeFields(Set<Field> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields comma separated JSON field names, null or blank for all
+     * @return projection, null in case a field is not an employee field
+     */
+    public static EmployeeFields parse(String fields) {
+        if (Objects.isNull(fields) || fields.isBlank()) {
+            return ALL;
+        }
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            Field field = Field.of(name.trim());
+            if (Objects.isNull(field)) {
+                return null;
+            }
+            selected.add(field);
+        }
+        return selected.size() == Field.values().length ? ALL : new EmployeeFields(selected);
+    }
+
+    public boolean isAll() {
+        return fields.size() == Field.values().length;
+    }
+
+    /**
+     * @param employees
+     * @return JSON array of the employees, holding only the projected fields
+     * @throws IOException in case of serialization error
+     */
+    public byte[] write(List<Employee> employees) throws IOException {
+        if (isAll()) {
+            return EMPLOYEES_WRITER.writeValueAsBytes(employees);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(employees.size() * 16 * fields.size() + 2);
+        try (JsonGenerator generator = EmployeeResponseParser.MAPPER.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (Employee employee : employees) {
+                generator.writeStartObject();
+                for (Field field : fields) {
+                    Object value = field.value.apply(employee);
+                    if (value instanceof Integer) {
+                        generator.writeNumberField(field.name, (Integer) value);
+                    } else if (Objects.nonNull(value)) {
+                        generator.writeStringField(field.name, value.toString());
+                    }
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    private enum Field {
+        ID("id", Employee::getId),
+        NAME("employee_name", Employee::getEmployeeName),
+        SALARY("employee_salary", Employee::getEmployeeSalary),
+        AGE("employee_age", Employee::getEmployeeAge),
+        IMAGE("profile_image", Employee::getProfileImage);
+
+        private final String name;
+        private final Function<Employee, Object> value;
+
+        Field(String name, Function<Employee, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        static Field of(String name) {
+            for (Field field : values()) {
+                if (field.name.equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+}
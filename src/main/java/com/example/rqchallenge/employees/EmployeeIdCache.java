@@ -0,0 +1,139 @@
+/*
+ * Employee ID cache keeps recently seen employees by ID, bounded in size and evicted least recently used first.
+ * Entries expire after a TTL, IDs known to be missing are kept as short-lived negative entries.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.config.CommonConfig;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class EmployeeIdCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EmployeeIdCache(int maxSize, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > EmployeeIdCache.this.maxSize;
+                if (evict) evictions.incrementAndGet();
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * @param config
+     * @return cache sized as configured
+     */
+    public static EmployeeIdCache of(CommonConfig config) {
+        return new EmployeeIdCache(config.getIdCacheMaxSize(), config.getIdCacheTtlMillis(),
+                config.getIdCacheNegativeTtlMillis(), System::currentTimeMillis);
+    }
+
+    /**
+     * @return false when size or TTL is configured as 0, nothing is cached then
+     */
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    /**
+     * @param id
+     * @return fresh entry for the ID, null if the ID has to be looked up upstream
+     */
+    public synchronized Entry get(String id) {
+        Entry entry = entries.get(id);
+        if (Objects.isNull(entry) || entry.expiresAt <= clock.getAsLong()) {
+            if (Objects.nonNull(entry)) entries.remove(id);
+            misses.incrementAndGet();
+            return null;
+        }
+        (entry.isMissing() ? negativeHits : hits).incrementAndGet();
+        return entry;
+    }
+
+    public synchronized void put(Employee employee) {
+        if (isEnabled() && Objects.nonNull(employee.getId())) {
+            entries.put(String.valueOf(employee.getId()), new Entry(employee, clock.getAsLong() + ttlMillis));
+        }
+    }
+
+    public synchronized void putAll(List<Employee> employees) {
+        if (!isEnabled()) {
+            return;
+        }
+        long expiresAt = clock.getAsLong() + ttlMillis;
+        // only the last maxSize employees would survive eviction anyway
+        for (int i = Math.max(0, employees.size() - maxSize); i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            if (Objects.nonNull(employee.getId())) {
+                entries.put(String.valueOf(employee.getId()), new Entry(employee, expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Remember that upstream has no employee with the ID
+     * @param id
+     */
+    public synchronized void putMissing(String id) {
+        if (isEnabled() && negativeTtlMillis > 0) {
+            entries.put(id, new Entry(null, clock.getAsLong() + negativeTtlMillis));
+        }
+    }
+
+    /**
+     * @return size and hit/miss counters
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    public static final class Entry {
+        private final Employee employee;
+        private final long expiresAt;
+
+        private Entry(Employee employee, long expiresAt) {
+            this.employee = employee;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return cached employee, null for a negative entry
+         */
+        public Employee getEmployee() {
+            return employee;
+        }
+
+        public boolean isMissing() {
+            return Objects.isNull(employee);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * Employee not found exception is thrown when upstream answers successfully, but without the requested employee
+ */
+package com.example.rqchallenge.employees;
+
+import java.io.IOException;
+
+public class EmployeeNotFoundException extends IOException {
+
+    public EmployeeNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Employee response cache holds the response bodies of the hottest snapshot reads, serialized once per snapshot version.
+ * Every request for the same version writes the same bytes, so there is no serialization per request.
+ * The gzip variant is compressed once, on the first request accepting it, and only for bodies worth compressing.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.config.CommonConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+public class EmployeeResponseCache {
+
+    public enum View {
+        ALL_EMPLOYEES, TOP_TEN_NAMES, HIGHEST_SALARY
+    }
+
+    /** smallest body compressed, -1 when gzip is disabled */
+    private final int gzipMinBytes;
+    private final AtomicReference<Version> current = new AtomicReference<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong compressions = new AtomicLong();
+
+    /**
+     * @param gzipMinBytes smallest body compressed, -1 to disable gzip
+     */
+    public EmployeeResponseCache(int gzipMinBytes) {
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * @param config
+     * @return cache compressing as configured
+     */
+    public static EmployeeResponseCache of(CommonConfig config) {
+        return new EmployeeResponseCache(config.isResponseGzipEnabled() ? Math.max(config.getResponseGzipMinBytes(), 0) : -1);
+    }
+
+    /**
+     * @param eTag entity tag of the snapshot version the body is rendered from
+     * @param view
+     * @param render serializes the view, called once per version and view
+     * @return rendered response
+     * @throws Exception in case rendering fails, nothing is cached then
+     */
+    public Response get(String eTag, View view, Render render) throws Exception {
+        Version version = current.get();
+        if(Objects.isNull(version) || !version.eTag.equals(eTag)){
+            // the first request of a new version drops the bodies of the previous one
+            Version fresh = new Version(eTag);
+            version = current.updateAndGet(previous ->
+                    Objects.nonNull(previous) && previous.eTag.equals(eTag) ? previous : fresh);
+        }
+        Response response = version.responses.get(view);
+        if(Objects.nonNull(response)){
+            hits.incrementAndGet();
+            return response;
+        }
+        synchronized (version) {
+            response = version.responses.get(view);
+            if(Objects.isNull(response)){
+                response = new Response(eTag, render.get());
+                version.responses.put(view, response);
+                renders.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * @return hit, render and compression counters, and bytes held for the current version
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("renders", renders.get());
+        stats.put("compressions", compressions.get());
+        long bytes = 0;
+        Version version = current.get();
+        if(Objects.nonNull(version)){
+            synchronized (version) {
+                for (Response response : version.responses.values()) {
+                    bytes += response.body.length + (Objects.isNull(response.gzipped) ? 0 : response.gzipped.length);
+                }
+            }
+        }
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    @FunctionalInterface
+    public interface Render {
+        byte[] get() throws Exception;
+    }
+
+    private static final class Version {
+        private final String eTag;
+        private final Map<View, Response> responses = new EnumMap<>(View.class);
+
+        Version(String eTag) {
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * Rendered body of one view at one snapshot version, shared by every request, never to be modified
+     */
+    public final class Response {
+        private final String eTag;
+        private final byte[] body;
+        private volatile byte[] gzipped;
+
+        private Response(String eTag, byte[] body) {
+            this.eTag = eTag;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return gzip compressed body, null when gzip is disabled, the body is too small or does not shrink
+         */
+        public byte[] getGzipped() {
+            if(gzipMinBytes < 0 || body.length < gzipMinBytes){
+                return null;
+            }
+            byte[] compressed = gzipped;
+            if(Objects.isNull(compressed)){
+                synchronized (this) {
+                    compressed = gzipped;
+                    if(Objects.isNull(compressed)){
+                        compressed = gzip(body);
+                        gzipped = compressed;
+                        compressions.incrementAndGet();
+                    }
+                }
+            }
+            return compressed.length < body.length ? compressed : null;
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
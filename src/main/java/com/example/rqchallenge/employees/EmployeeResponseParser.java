@@ -0,0 +1,179 @@
+/*
+ * Employee response parser reads the dummy API envelope {"status": ..., "data": ...} with a streaming JsonParser.
+ * Employees are bound one by one while the body is read, and all parsing goes through one shared ObjectMapper.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.util.ResponseReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Component
+@Getter
+public class EmployeeResponseParser {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader EMPLOYEE_READER = MAPPER.readerFor(Employee.class);
+
+    private static final String STATUS = "status";
+    private static final String DATA = "data";
+    private static final String SUCCESS = "success";
+
+    private final ResponseReader<List<Employee>> employeeList = this::readEmployees;
+
+    // employees go straight into the compact store, no intermediate list is kept
+    private final ResponseReader<EmployeeStore> employeeStore = body -> {
+        EmployeeStore.Builder builder = EmployeeStore.builder(1024);
+        readEmployees(body, builder);
+        return builder.build();
+    };
+
+    // list parse time includes reading the body off the network, as it is streamed
+    @Getter(AccessLevel.NONE)
+    private final Timer listParse;
+    @Getter(AccessLevel.NONE)
+    private final Timer singleParse;
+    @Getter(AccessLevel.NONE)
+    private final DistributionSummary listSize;
+
+    /**
+     * @param registry parse time and size of parsed lists are recorded in
+     */
+    @Autowired
+    public EmployeeResponseParser(MeterRegistry registry) {
+        this.listParse = Timer.builder("employee.parse").tag("type", "list").register(registry);
+        this.singleParse = Timer.builder("employee.parse").tag("type", "single").register(registry);
+        this.listSize = DistributionSummary.builder("employee.parse.employees").register(registry);
+    }
+
+    /**
+     * @param body response stream of the employee list
+     * @return employees of the data array
+     * @throws IOException in case response is not valid
+     */
+    public List<Employee> readEmployees(InputStream body) throws IOException {
+        List<Employee> employees = new ArrayList<>();
+        readEmployees(body, employees::add);
+        return employees;
+    }
+
+    /**
+     * Hand over every employee of the data array as soon as it is parsed
+     * @param body response stream of the employee list
+     * @param consumer
+     * @throws IOException in case response is not valid
+     */
+    public void readEmployees(InputStream body, Consumer<Employee> consumer) throws IOException {
+        long start = System.nanoTime();
+        int[] count = new int[1];
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            readEnvelope(parser, employee -> {
+                count[0]++;
+                consumer.accept(employee);
+            }, true);
+        }
+        listParse.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        listSize.record(count[0]);
+    }
+
+    /**
+     * @param body response of single employee
+     * @return employee of the data object
+     * @throws EmployeeNotFoundException in case response is successful, but carries no employee
+     * @throws IOException in case response is not valid
+     */
+    public Employee readEmployee(String body) throws IOException {
+        long start = System.nanoTime();
+        List<Employee> employees = new ArrayList<>(1);
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            readEnvelope(parser, employees::add, true);
+        }
+        singleParse.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (employees.isEmpty()) {
+            throw new EmployeeNotFoundException("Response does not contain employee data");
+        }
+        return employees.get(0);
+    }
+
+    /**
+     * Validate the envelope of a response which carries no employee data
+     * @param body
+     * @throws IOException in case response is not valid
+     */
+    public void validate(String body) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            readEnvelope(parser, employee -> { }, false);
+        }
+    }
+
+    private static void readEnvelope(JsonParser parser, Consumer<Employee> consumer, boolean dataRequired) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Response is not a JSON object");
+        }
+        boolean dataFound = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (STATUS.equals(field)) {
+                if (token != JsonToken.VALUE_NULL && !SUCCESS.equalsIgnoreCase(parser.getText())) {
+                    throw new IOException(String.format("Unsuccessful response status: %s", parser.getText()));
+                }
+            } else if (DATA.equals(field)) {
+                dataFound = true;
+                readData(parser, consumer);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (dataRequired && !dataFound) {
+            throw new IOException("Response does not contain data");
+        }
+    }
+
+    private static void readData(JsonParser parser, Consumer<Employee> consumer) throws IOException {
+        switch (parser.currentToken()) {
+            case START_ARRAY:
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(EMPLOYEE_READER.readValue(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                break;
+            case START_OBJECT:
+                consumer.accept(EMPLOYEE_READER.readValue(parser));
+                break;
+            case VALUE_STRING:
+                // data sent as JSON encoded string
+                try (JsonParser nested = MAPPER.getFactory().createParser(parser.getText())) {
+                    if (Objects.nonNull(nested.nextToken())) {
+                        readData(nested, consumer);
+                    }
+                }
+                break;
+            default:
+                parser.skipChildren();
+                break;
+        }
+    }
+}
@@ -6,20 +6,29 @@ package com.example.rqchallenge.employees;
 
 import com.example.rqchallenge.config.CommonConfig;
 import com.example.rqchallenge.config.Constants;
+import com.example.rqchallenge.util.BoundedPipeline;
+import com.example.rqchallenge.util.CircuitOpenException;
 import com.example.rqchallenge.util.CommonAPIClient;
+import com.example.rqchallenge.util.NameQuery;
+import com.example.rqchallenge.util.ParallelSearch;
+import com.example.rqchallenge.util.RangeQuery;
 import com.example.rqchallenge.util.SearchEngine;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 @Slf4j
-public class EmployeeService {
+public class EmployeeService implements InitializingBean, DisposableBean {
 
     @Autowired
     CommonAPIClient client;
@@ -30,6 +39,35 @@ public class EmployeeService {
     @Autowired
     SearchEngine searchEngine;
 
+    @Autowired
+    ParallelSearch parallelSearch;
+
+    @Autowired
+    EmployeeResponseParser parser;
+
+    private volatile EmployeeSnapshotCache snapshotCache;
+
+    private volatile EmployeeIdCache idCache;
+
+    private volatile EmployeeResponseCache responseCache;
+
+    private EmployeeSnapshotFile snapshotFile;
+
+    @Override
+    public void afterPropertiesSet() {
+        restoreSnapshot();
+    }
+
+    /**
+     * Stop the background refresh with the application context, then let a pending snapshot file write finish
+     */
+    @Override
+    public void destroy() {
+        EmployeeSnapshotCache cache = snapshotCache;
+        if(Objects.nonNull(cache)) cache.close();
+        if(Objects.nonNull(snapshotFile)) snapshotFile.close();
+    }
+
     /**
      *
      * @return List of employees
@@ -38,23 +76,115 @@ public class EmployeeService {
     public List<Employee> getAllEmployees() throws Exception {
         try {
             log.debug("Retrieving all employee details");
-            Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/%ss",config.getBaseUrl(),config.getApiVersion(),config.getEntity()),
-                    Constants.HttpMethods.GET.toString(), Optional.empty());
+            List<Employee> employees = getSnapshot().getEmployees();
             log.debug("Retrieved all employee details");
-            if(response.isPresent() && validateResponse(response.get())) {
-                JSONObject jsonObject = new JSONObject(response.get());
-                ObjectMapper mapper = new ObjectMapper();
-                return Arrays.asList(mapper.readValue(jsonObject.get("data").toString(), Employee[].class));
-            }else{
-                throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
-            }
+            return employees;
         } catch (Exception e) {
             log.error("Error occurred while retrieving the all employees data ", e);
             throw new Exception("Error occurred while retrieving the all employees data");
         }
     }
 
+    /**
+     * Hand over employees one by one, from the snapshot when it can be served. Otherwise every employee is handed
+     * over as soon as it is parsed from upstream, and the fetched roster is published as the new snapshot.
+     * @param consumer
+     * @throws Exception in case any error in processing response
+     */
+    public void streamAllEmployees(Consumer<Employee> consumer) throws Exception {
+        try {
+            log.debug("Streaming all employee details");
+            EmployeeSnapshot snapshot = getCachedSnapshot();
+            if(Objects.isNull(snapshot) && client.isCircuitOpen()){
+                snapshot = getLastGoodSnapshot(new CircuitOpenException("Upstream unavailable, circuit breaker is open"));
+            }
+            if(Objects.nonNull(snapshot)){
+                snapshot.getEmployees().forEach(consumer);
+            }else{
+                getSnapshotCache().recordMiss();
+                EmployeeStore.Builder employees = EmployeeStore.builder(1024);
+                Optional<EmployeeStore> response = client.getResponseFromDummyAPI(
+                        employeesUrl(),
+                        Constants.HttpMethods.GET.toString(), Optional.empty(), body -> {
+                            parser.readEmployees(body, employee -> {
+                                employees.accept(employee);
+                                consumer.accept(employee);
+                            });
+                            return employees.build();
+                        });
+                if(response.isPresent()) {
+                    applyFetched(response.get());
+                }else{
+                    throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
+                }
+            }
+            log.debug("Streamed all employee details");
+        } catch (Exception e) {
+            log.error("Error occurred while streaming the all employees data ", e);
+            throw new Exception("Error occurred while streaming the all employees data");
+        }
+    }
+
+    /**
+     *
+     * @param after ID of the last employee of the previous page, null for the first page
+     * @param limit page size
+     * @return page of employees following the ID, ascending by ID
+     * @throws Exception in case any error in processing response
+     */
+    public List<Employee> getEmployeesPage(Integer after, int limit) throws Exception {
+        return getEmployeesPage(getSnapshot(), after, limit);
+    }
+
+    /**
+     *
+     * @param snapshot snapshot to read, resolved once per request along with its ETag
+     * @param after ID of the last employee of the previous page, null for the first page
+     * @param limit page size
+     * @return page of employees following the ID, ascending by ID
+     * @throws Exception in case any error in processing response
+     */
+    List<Employee> getEmployeesPage(EmployeeSnapshot snapshot, Integer after, int limit) throws Exception {
+        try {
+            log.debug("Retrieving {} employees after ID:{}", limit, after);
+            List<Employee> employees = searchEngine.pageById(snapshot, after, limit);
+            log.debug("Retrieved page of employee details");
+            return employees;
+        } catch (Exception e) {
+            log.error("Error occurred while retrieving the employees page ", e);
+            throw new Exception("Error occurred while retrieving the employees page");
+        }
+    }
+
+    /**
+     * Response body of a hot snapshot read, serialized once per snapshot version and shared by every request for it
+     * @param view
+     * @return rendered response, tagged with the ETag of the snapshot it was rendered from
+     * @throws Exception in case any error in processing response
+     */
+    public EmployeeResponseCache.Response getRenderedResponse(EmployeeResponseCache.View view) throws Exception {
+        try {
+            EmployeeSnapshot snapshot = getSnapshot();
+            return getResponseCache().get(getSnapshotCache().getETag(snapshot), view, () -> render(snapshot, view));
+        } catch (Exception e) {
+            log.error(String.format("Error occurred while rendering %s response", view), e);
+            throw new Exception(String.format("Error occurred while rendering %s response", view));
+        }
+    }
+
+    private byte[] render(EmployeeSnapshot snapshot, EmployeeResponseCache.View view) throws Exception {
+        log.debug("Rendering {} response of snapshot version:{}", view, snapshot.getVersion());
+        switch (view) {
+            case TOP_TEN_NAMES:
+                return EmployeeResponseParser.MAPPER.writeValueAsBytes(
+                        searchEngine.getTopRecordsBasedOnSalary(snapshot, Constants.TOP_RECORDS));
+            case HIGHEST_SALARY:
+                return EmployeeResponseParser.MAPPER.writeValueAsBytes(searchEngine.getHighestSalaryOfEmployees(snapshot));
+            default:
+                return EmployeeResponseParser.MAPPER.writeValueAsBytes(snapshot.getEmployees());
+        }
+    }
+
     /**
      *
      * @param searchString
@@ -64,21 +194,103 @@ public class EmployeeService {
     public List<Employee> getEmployeesByNameSearch(String searchString) throws Exception {
         try {
             log.debug("Retrieving employees based on searchString - {}", searchString);
-            Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/%ss",config.getBaseUrl(),config.getApiVersion(),config.getEntity()),
-                    Constants.HttpMethods.GET.toString(), Optional.empty());
+            List<Employee> employees = searchEngine.searchByName(getSnapshot(), searchString);
             log.debug("Retrieved search result of employee details");
-            if(response.isPresent()) {
-                return searchEngine.searchByName(processResponse(response.get()), searchString);
-            }else{
-                throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
-            }
+            return employees;
         } catch (Exception e) {
             log.error("Error occurred while retrieving the all employees data ", e);
             throw new Exception("Error occurred while retrieving the all employees data");
         }
     }
 
+    /**
+     *
+     * @param query search text along with prefix, multi-token and paging options
+     * @return page of searched employees
+     * @throws Exception in case any error in processing response
+     */
+    public List<Employee> getEmployeesByNameSearch(NameQuery query) throws Exception {
+        return getEmployeesByNameSearch(getSnapshot(), query);
+    }
+
+    /**
+     *
+     * @param snapshot snapshot to read, resolved once per request along with its ETag
+     * @param query search text along with prefix, multi-token and paging options
+     * @return page of searched employees
+     * @throws Exception in case any error in processing response
+     */
+    List<Employee> getEmployeesByNameSearch(EmployeeSnapshot snapshot, NameQuery query) throws Exception {
+        try {
+            log.debug("Retrieving employees based on searchString - {}", query.getText());
+            List<Employee> employees = searchEngine.searchByName(snapshot, query);
+            log.debug("Retrieved search result of employee details");
+            return employees;
+        } catch (Exception e) {
+            log.error("Error occurred while retrieving the all employees data ", e);
+            throw new Exception("Error occurred while retrieving the all employees data");
+        }
+    }
+
+    /**
+     *
+     * @param query salary and age ranges along with name filter, sort and paging options
+     * @return page of employees in range
+     * @throws Exception in case any error in processing response
+     */
+    public List<Employee> getEmployeesByRange(RangeQuery query) throws Exception {
+        return getEmployeesByRange(getSnapshot(), query);
+    }
+
+    /**
+     *
+     * @param snapshot snapshot to read, resolved once per request along with its ETag
+     * @param query salary and age ranges along with name filter, sort and paging options
+     * @return page of employees in range
+     * @throws Exception in case any error in processing response
+     */
+    List<Employee> getEmployeesByRange(EmployeeSnapshot snapshot, RangeQuery query) throws Exception {
+        try {
+            log.debug("Retrieving employees with salary {}..{} and age {}..{}",
+                    query.getMinSalary(), query.getMaxSalary(), query.getMinAge(), query.getMaxAge());
+            List<Employee> employees = searchEngine.searchByRange(snapshot, query);
+            log.debug("Retrieved range search result of employee details");
+            return employees;
+        } catch (Exception e) {
+            log.error("Error occurred while retrieving employees in range ", e);
+            throw new Exception("Error occurred while retrieving employees in range");
+        }
+    }
+
+    /**
+     *
+     * @param percentiles salary percentiles to report, between 0 and 100
+     * @return salary aggregates of the roster, read from the stats kept with the snapshot
+     * @throws Exception in case any error in processing response
+     */
+    public EmployeeStats getEmployeeStats(List<Double> percentiles) throws Exception {
+        return getEmployeeStats(getSnapshot(), percentiles);
+    }
+
+    /**
+     *
+     * @param snapshot snapshot to read, resolved once per request along with its ETag
+     * @param percentiles salary percentiles to report, between 0 and 100
+     * @return salary aggregates of the roster, read from the stats kept with the snapshot
+     * @throws Exception in case any error in processing response
+     */
+    EmployeeStats getEmployeeStats(EmployeeSnapshot snapshot, List<Double> percentiles) throws Exception {
+        try {
+            log.debug("Retrieving employee stats for percentiles {}", percentiles);
+            EmployeeStats stats = EmployeeStats.of(snapshot, percentiles);
+            log.debug("Retrieved employee stats");
+            return stats;
+        } catch (Exception e) {
+            log.error("Error occurred while retrieving employee stats ", e);
+            throw new Exception("Error occurred while retrieving employee stats");
+        }
+    }
+
     /**
      *
      * @param id Employee ID
@@ -88,11 +300,15 @@ public class EmployeeService {
     public Employee getEmployeeById(String id) throws Exception {
         try {
             log.debug("Getting employee based on ID:{}", id);
+            EmployeeIdCache.Entry cached = getIdCache().get(id);
+            if(Objects.nonNull(cached)){
+                return getCachedEmployee(id, cached);
+            }
             Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/%s/%s",config.getBaseUrl(),config.getApiVersion(),config.getEntity(),id),
+                    employeeUrl(id),
                     Constants.HttpMethods.GET.toString(), Optional.empty());
             log.debug("Retrieved employee details ID:{}",id);
-            return getEmployee(response);
+            return applyRead(id, response);
         } catch (Exception e) {
             log.error("Error occurred while retrieving the employee details ", e);
             throw new Exception("Error occurred while retrieving the employee details");
@@ -107,15 +323,9 @@ public class EmployeeService {
     public Integer getHighestSalaryOfEmployees() throws Exception {
         try {
             log.debug("Getting highest salary");
-            Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/%ss",config.getBaseUrl(),config.getApiVersion(),config.getEntity()),
-                    Constants.HttpMethods.GET.toString(), Optional.empty());
+            Integer salary = searchEngine.getHighestSalaryOfEmployees(getSnapshot());
             log.debug("Retrieved highest salary");
-            if(response.isPresent()) {
-                return searchEngine.getHighestSalaryOfEmployees(processResponse(response.get()));
-            }else{
-                throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
-            }
+            return salary;
         } catch (Exception e) {
             log.error("Error occurred while retrieving highest salary of an employee ", e);
             throw new Exception("Error occurred while retrieving highest salary of an employee");
@@ -128,20 +338,35 @@ public class EmployeeService {
      * @throws Exception in case any error in processing response
      */
     public List<String> getTopTenHighestEarningEmployeeNames() throws Exception {
+        return getTopHighestEarningEmployeeNames(Constants.TOP_RECORDS);
+    }
+
+    /**
+     *
+     * @param totalRecords number of employees to return
+     * @return List of top employees who is having the highest salary
+     * @throws Exception in case any error in processing response
+     */
+    public List<String> getTopHighestEarningEmployeeNames(int totalRecords) throws Exception {
+        return getTopHighestEarningEmployeeNames(getSnapshot(), totalRecords);
+    }
+
+    /**
+     *
+     * @param snapshot snapshot to read, resolved once per request along with its ETag
+     * @param totalRecords number of employees to return
+     * @return List of top employees who is having the highest salary
+     * @throws Exception in case any error in processing response
+     */
+    List<String> getTopHighestEarningEmployeeNames(EmployeeSnapshot snapshot, int totalRecords) throws Exception {
         try {
-            log.debug("Getting top ten salaried employee");
-            Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/%ss",config.getBaseUrl(),config.getApiVersion(),config.getEntity()),
-                    Constants.HttpMethods.GET.toString(), Optional.empty());
-            log.debug("retrieved top ten salaried employee");
-            if(response.isPresent()) {
-                return searchEngine.getTopRecordsBasedOnSalary(processResponse(response.get()), Constants.TOP_RECORDS);
-            }else{
-                throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
-            }
+            log.debug("Getting top {} salaried employee", totalRecords);
+            List<String> names = searchEngine.getTopRecordsBasedOnSalary(snapshot, totalRecords);
+            log.debug("retrieved top {} salaried employee", totalRecords);
+            return names;
         } catch (Exception e) {
-            log.error("Error occurred while retrieving top ten highest earning employee ", e);
-            throw new Exception("Error occurred while retrieving top ten highest earning employee");
+            log.error(String.format("Error occurred while retrieving top %d highest earning employee ", totalRecords), e);
+            throw new Exception(String.format("Error occurred while retrieving top %d highest earning employee", totalRecords));
         }
     }
 
@@ -149,9 +374,9 @@ public class EmployeeService {
         try {
 
             Optional<String> response =  client.getResponseFromDummyAPI(
-                    String.format("%s%s/create",config.getBaseUrl(),config.getApiVersion(),config.getEntity()),
-                    Constants.HttpMethods.POST.toString(), Optional.ofNullable(new JSONObject(employeeInput).toString()));
-            return getEmployee(response);
+                    createUrl(),
+                    Constants.HttpMethods.POST.toString(), Optional.ofNullable(EmployeeResponseParser.MAPPER.writeValueAsString(employeeInput)));
+            return applyCreated(getEmployee(response));
         } catch (Exception e) {
             log.error("Error occurred while creating the employee", e);
             throw new Exception("Error occurred while creating the employee");
@@ -163,10 +388,10 @@ public class EmployeeService {
             Optional<Employee> employee = getEmployeeIfValid(id);
             if(Objects.nonNull(employee) && employee.isPresent()){
                 Optional<String> response =  client.getResponseFromDummyAPI(
-                        String.format("%s%s/delete/%s",config.getBaseUrl(),config.getApiVersion(),config.getEntity(),id),
+                        deleteUrl(id),
                         Constants.HttpMethods.DELETE.toString(), Optional.empty());
                  if(validateResponse(response.get())){
-                     return String.format("Employee record naming '%s' is deleted", employee.get().getEmployeeName());
+                     return applyDeleted(employee.get());
                  }else{
                      throw new Exception(String.format("Error occurred while deleting the employee ID: %s", id));
                  }
@@ -179,6 +404,242 @@ public class EmployeeService {
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #getEmployeeById(String)}, no thread waits while upstream responds
+     * @param id Employee ID
+     * @return future of employee details
+     */
+    public CompletableFuture<Employee> getEmployeeByIdAsync(String id) {
+        log.debug("Getting employee based on ID:{}", id);
+        EmployeeIdCache.Entry cached = getIdCache().get(id);
+        if(Objects.nonNull(cached)){
+            try {
+                return CompletableFuture.completedFuture(getCachedEmployee(id, cached));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return client.getResponseFromDummyAPIAsync(employeeUrl(id), Constants.HttpMethods.GET.toString(), Optional.empty())
+                .thenApply(handle(response -> applyRead(id, response)));
+    }
+
+    /**
+     * Non-blocking variant of {@link #createEmployee(Map)}
+     * @param employeeInput
+     * @return future of created employee
+     */
+    public CompletableFuture<Employee> createEmployeeAsync(Map<String, Object> employeeInput) {
+        return createUpstream(employeeInput).thenApply(employee -> {
+            patchSnapshot(List.of(employee), List.of());
+            return employee;
+        });
+    }
+
+    /**
+     * Non-blocking variant of {@link #deleteEmployeeById(String)}
+     * @param id Employee ID
+     * @return future of deletion message
+     */
+    public CompletableFuture<String> deleteEmployeeByIdAsync(String id) {
+        return deleteUpstream(id).thenApply(employee -> {
+            patchSnapshot(List.of(), Collections.singletonList(employee.getId()));
+            return deletedMessage(employee);
+        });
+    }
+
+    /**
+     * Create employees with at most upstream.batch.concurrency calls in flight.
+     * The snapshot is patched once after all calls complete, not once per employee.
+     * @param employeeInputs
+     * @return future of one result per input, in input order
+     */
+    public CompletableFuture<List<BatchResult>> createEmployeesAsync(List<Map<String, Object>> employeeInputs) {
+        return BoundedPipeline.run(employeeInputs, config.getBatchConcurrency(),
+                        input -> createUpstream(input).thenApply(BatchResult::created),
+                        (input, e) -> {
+                            log.error("Error occurred while creating the employee", e);
+                            return BatchResult.failed(null, "Error occurred while creating the employee");
+                        })
+                .thenApply(results -> {
+                    List<Employee> created = new ArrayList<>(results.size());
+                    results.stream().filter(result -> BatchResult.SUCCESS.equals(result.getStatus()))
+                            .forEach(result -> created.add(result.getEmployee()));
+                    patchSnapshot(created, List.of());
+                    return results;
+                });
+    }
+
+    /**
+     * Delete employees with at most upstream.batch.concurrency calls in flight.
+     * Repeated IDs are looked up and deleted once and share the result, the snapshot is patched once at the end.
+     * @param ids Employee IDs
+     * @return future of one result per ID, in request order
+     */
+    public CompletableFuture<List<BatchResult>> deleteEmployeesAsync(List<String> ids) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        return BoundedPipeline.run(distinct, config.getBatchConcurrency(),
+                        id -> deleteUpstream(id).thenApply(employee -> new BatchResult(id, BatchResult.SUCCESS, employee, deletedMessage(employee))),
+                        (id, e) -> {
+                            log.error(String.format("Error occurred while deleting the employee ID: %s", id), e);
+                            return BatchResult.failed(id, String.format("Error occurred while deleting the employee ID: %s", id));
+                        })
+                .thenApply(results -> {
+                    Map<String, BatchResult> byId = new HashMap<>();
+                    List<Integer> deletedIds = new ArrayList<>(results.size());
+                    for (int i = 0; i < distinct.size(); i++) {
+                        BatchResult result = results.get(i);
+                        byId.put(distinct.get(i), result);
+                        if(BatchResult.SUCCESS.equals(result.getStatus())) deletedIds.add(result.getEmployee().getId());
+                    }
+                    patchSnapshot(List.of(), deletedIds);
+                    List<BatchResult> ordered = new ArrayList<>(ids.size());
+                    ids.forEach(id -> ordered.add(byId.get(id)));
+                    return ordered;
+                });
+    }
+
+    /**
+     * Start warm from the roster persisted by an earlier run, before the first request is served.
+     * A refresh from upstream is started right away in background, reads are served from the restored roster meanwhile.
+     */
+    void restoreSnapshot() {
+        snapshotFile = EmployeeSnapshotFile.of(config);
+        if(Objects.isNull(snapshotFile)){
+            return;
+        }
+        snapshotFile.read().ifPresent(persisted -> {
+            if(Objects.nonNull(getSnapshotCache().restore(persisted.getStore(), persisted.getRefreshedAt()))){
+                getSnapshotCache().refreshInBackground(this::scheduledSnapshotRefresh);
+            }
+        });
+    }
+
+    /**
+     * Refresh the employee snapshot from upstream on a fixed schedule, so reads are served locally
+     */
+    @Scheduled(fixedDelayString = "${employee.snapshot.refresh-interval-ms:30000}")
+    public void scheduledSnapshotRefresh() {
+        try {
+            refreshSnapshot();
+        } catch (Exception e) {
+            log.error("Error occurred while refreshing the employee snapshot", e);
+        }
+    }
+
+    /**
+     * @return snapshot age and hit/miss counters
+     */
+    public Map<String, Object> getSnapshotStats() {
+        Map<String, Object> stats = getSnapshotCache().getStats();
+        stats.put("idCache", getIdCache().getStats());
+        stats.put("responses", getResponseCache().getStats());
+        return stats;
+    }
+
+    /**
+     * @return true while list reads are served from the last good snapshot because upstream is unavailable
+     */
+    public boolean isServingStaleSnapshot() {
+        return getSnapshotCache().isServingStale();
+    }
+
+    /**
+     * @return age of the current snapshot in millis, -1 if there is none
+     */
+    public long getSnapshotAgeMillis() {
+        EmployeeSnapshot snapshot = getSnapshotCache().get();
+        return Objects.isNull(snapshot) ? -1 : snapshot.getAgeMillis();
+    }
+
+    /**
+     * Entity tag of reads served from the snapshot. A response derives its tag and its body from the same snapshot,
+     * so it is never tagged with a version other than the one it was computed from.
+     * @param snapshot
+     * @return strong entity tag of reads served from the snapshot
+     */
+    public String getSnapshotETag(EmployeeSnapshot snapshot) {
+        return getSnapshotCache().getETag(snapshot);
+    }
+
+    /**
+     * @return largest number of items accepted in one batch create or delete
+     */
+    public int getBatchMaxSize() {
+        return config.getBatchMaxSize();
+    }
+
+    /**
+     * Serve the current snapshot while it is within TTL. Within stale-while-revalidate window the stale snapshot
+     * is served and refresh is triggered in background, otherwise it is loaded from upstream.
+     * @return employee snapshot
+     * @throws Exception in case snapshot could not be loaded
+     */
+    EmployeeSnapshot getSnapshot() throws Exception {
+        EmployeeSnapshot snapshot = getCachedSnapshot();
+        if(Objects.nonNull(snapshot)){
+            return snapshot;
+        }
+        getSnapshotCache().recordMiss();
+        try {
+            return refreshSnapshot();
+        } catch (Exception e) {
+            return getLastGoodSnapshot(e);
+        }
+    }
+
+    /**
+     * Upstream is unavailable, fall back to the last good snapshot if there is one
+     * @param cause
+     * @return last good snapshot
+     * @throws Exception cause, in case there is no snapshot to fall back to
+     */
+    private EmployeeSnapshot getLastGoodSnapshot(Exception cause) throws Exception {
+        EmployeeSnapshot snapshot = getSnapshotCache().get();
+        if(Objects.isNull(snapshot)){
+            throw cause;
+        }
+        log.warn("Serving stale employee snapshot version:{}, age:{} ms, upstream unavailable: {}",
+                snapshot.getVersion(), snapshot.getAgeMillis(), cause.getMessage());
+        getSnapshotCache().recordStaleFallback();
+        return snapshot;
+    }
+
+    /**
+     * @return current snapshot if it can be served, null in case it has to be loaded from upstream
+     */
+    private EmployeeSnapshot getCachedSnapshot() {
+        EmployeeSnapshot snapshot = getSnapshotCache().get();
+        if(Objects.nonNull(snapshot)){
+            long age = snapshot.getAgeMillis();
+            if(age < config.getSnapshotTtlMillis()){
+                getSnapshotCache().recordHit();
+                return snapshot;
+            }
+            if(age < config.getSnapshotTtlMillis() + config.getSnapshotStaleWhileRevalidateMillis()){
+                getSnapshotCache().recordStaleHit();
+                getSnapshotCache().refreshInBackground(this::scheduledSnapshotRefresh);
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    EmployeeSnapshot refreshSnapshot() throws Exception {
+        try {
+            Optional<EmployeeStore> response =  client.getResponseFromDummyAPI(
+                    employeesUrl(),
+                    Constants.HttpMethods.GET.toString(), Optional.empty(), parser.getEmployeeStore());
+            if(response.isPresent()) {
+                return applyFetched(response.get());
+            }else{
+                throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
+            }
+        } catch (Exception e) {
+            getSnapshotCache().recordRefreshFailure();
+            throw e;
+        }
+    }
+
     public Optional<Employee> getEmployeeIfValid(String id) {
         try{
             Optional<Employee> employee = Optional.ofNullable(getEmployeeById(id));
@@ -189,35 +650,187 @@ public class EmployeeService {
         }
     }
 
-    private Employee getEmployee(Optional<String> response) throws Exception {
-        if(response.isPresent() && validateResponse(response.get())) {
-            ObjectMapper mapper = new ObjectMapper();
-            JSONObject jsonObject = new JSONObject(response.get());
-            return mapper.readValue(jsonObject.get("data").toString(), Employee.class);
-        }else{
-            throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
+    /**
+     * Employee ID cache is sized from config on first use
+     */
+    EmployeeIdCache getIdCache() {
+        EmployeeIdCache cache = idCache;
+        if(Objects.isNull(cache)){
+            synchronized (this) {
+                if(Objects.isNull(idCache)){
+                    idCache = EmployeeIdCache.of(config);
+                }
+                cache = idCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Employee snapshot cache is created on first use, its snapshots are indexed on the parallel search pool
+     */
+    EmployeeSnapshotCache getSnapshotCache() {
+        EmployeeSnapshotCache cache = snapshotCache;
+        if(Objects.isNull(cache)){
+            synchronized (this) {
+                if(Objects.isNull(snapshotCache)){
+                    snapshotCache = new EmployeeSnapshotCache(parallelSearch);
+                }
+                cache = snapshotCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Employee response cache is configured on first use
+     */
+    EmployeeResponseCache getResponseCache() {
+        EmployeeResponseCache cache = responseCache;
+        if(Objects.isNull(cache)){
+            synchronized (this) {
+                if(Objects.isNull(responseCache)){
+                    responseCache = EmployeeResponseCache.of(config);
+                }
+                cache = responseCache;
+            }
         }
+        return cache;
     }
 
-    private List<Employee> processResponse(String responseData) throws Exception {
+    private Employee getCachedEmployee(String id, EmployeeIdCache.Entry cached) throws EmployeeNotFoundException {
+        if(cached.isMissing()){
+            throw new EmployeeNotFoundException(String.format("Employee ID %s not found (cached)", id));
+        }
+        log.debug("Retrieved employee details ID:{} from cache", id);
+        return cached.getEmployee();
+    }
 
+    private Employee applyRead(String id, Optional<String> response) throws Exception {
         try {
-            if(validateResponse(responseData)){
-                JSONObject jsonObject = new JSONObject(responseData);
-                ObjectMapper mapper = new ObjectMapper();
-                List<Employee> employees = Arrays.asList(mapper.readValue(jsonObject.get("data").toString(), Employee[].class));
-                return employees;
-            }else{
-                throw new Exception("Error while processing the response");
+            Employee employee = getEmployee(response);
+            getIdCache().put(employee);
+            return employee;
+        } catch (EmployeeNotFoundException e) {
+            getIdCache().putMissing(id);
+            throw e;
+        }
+    }
+
+    private EmployeeSnapshot applyFetched(EmployeeStore store) {
+        EmployeeSnapshot snapshot = getSnapshotCache().publish(store);
+        getIdCache().putAll(snapshot.getEmployees());
+        if(Objects.nonNull(snapshotFile)) snapshotFile.writeInBackground(snapshot);
+        return snapshot;
+    }
+
+    private Employee applyCreated(Employee employee) {
+        getIdCache().put(employee);
+        patchSnapshot(List.of(employee), List.of());
+        return employee;
+    }
+
+    private String applyDeleted(Employee employee) {
+        if(Objects.nonNull(employee.getId())) getIdCache().putMissing(String.valueOf(employee.getId()));
+        patchSnapshot(List.of(), Collections.singletonList(employee.getId()));
+        return deletedMessage(employee);
+    }
+
+    /**
+     * Upstream create, updating the ID cache but not the snapshot
+     */
+    private CompletableFuture<Employee> createUpstream(Map<String, Object> employeeInput) {
+        try {
+            return client.getResponseFromDummyAPIAsync(createUrl(), Constants.HttpMethods.POST.toString(),
+                            Optional.ofNullable(EmployeeResponseParser.MAPPER.writeValueAsString(employeeInput)))
+                    .thenApply(handle(response -> {
+                        Employee employee = getEmployee(response);
+                        getIdCache().put(employee);
+                        return employee;
+                    }));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Upstream lookup and delete, updating the ID cache but not the snapshot
+     * @return future of the deleted employee
+     */
+    private CompletableFuture<Employee> deleteUpstream(String id) {
+        return getEmployeeByIdAsync(id)
+                .thenCompose(employee -> client.getResponseFromDummyAPIAsync(deleteUrl(id), Constants.HttpMethods.DELETE.toString(), Optional.empty())
+                        .thenApply(handle(response -> {
+                            validateResponse(response.orElseThrow());
+                            if(Objects.nonNull(employee.getId())) getIdCache().putMissing(String.valueOf(employee.getId()));
+                            return employee;
+                        })));
+    }
+
+    /**
+     * Apply created and deleted employees to the current snapshot in one patch.
+     * A created employee without ID cannot be placed, so the snapshot is dropped instead.
+     */
+    private void patchSnapshot(List<Employee> created, List<Integer> deletedIds) {
+        if(created.isEmpty() && deletedIds.isEmpty()){
+            return;
+        }
+        if(created.stream().anyMatch(employee -> Objects.isNull(employee.getId()))){
+            getSnapshotCache().invalidate();
+        }else{
+            getSnapshotCache().patch((snapshot, version) -> snapshot.withChanges(created, deletedIds, version, config.getSnapshotCompactionThreshold()));
+        }
+    }
+
+    private static String deletedMessage(Employee employee) {
+        return String.format("Employee record naming '%s' is deleted", employee.getEmployeeName());
+    }
+
+    private String employeesUrl() {
+        return String.format("%s%s/%ss",config.getBaseUrl(),config.getApiVersion(),config.getEntity());
+    }
+
+    private String employeeUrl(String id) {
+        return String.format("%s%s/%s/%s",config.getBaseUrl(),config.getApiVersion(),config.getEntity(),id);
+    }
+
+    private String createUrl() {
+        return String.format("%s%s/create",config.getBaseUrl(),config.getApiVersion());
+    }
+
+    private String deleteUrl(String id) {
+        return String.format("%s%s/delete/%s",config.getBaseUrl(),config.getApiVersion(),id);
+    }
+
+    /**
+     * Adapt a response handler throwing checked exceptions to a future stage
+     */
+    private static <T, R> Function<T, R> handle(ResponseHandler<T, R> handler) {
+        return value -> {
+            try {
+                return handler.apply(value);
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
-        } catch (JsonProcessingException e) {
-            throw new Exception("Error while processing the response",e);
+        };
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T, R> {
+        R apply(T value) throws Exception;
+    }
+
+    private Employee getEmployee(Optional<String> response) throws Exception {
+        if(response.isPresent()) {
+            return parser.readEmployee(response.get());
+        }else{
+            throw new Exception(String.format("Invalid response received from URL: %s", config.getBaseUrl()));
         }
     }
 
     private boolean validateResponse(String responseData) throws Exception {
         try{
-            JSONObject jsonObject = new JSONObject(responseData);
+            parser.validate(responseData);
             return Boolean.TRUE;
         }catch (Exception e){
             throw new Exception("Error while parsing the response",e);
@@ -0,0 +1,433 @@
+/*
+ * Employee snapshot is an immutable, point-in-time view of the employee roster.
+ * A snapshot is never modified once published, refresh or patch always creates a new one.
+ * Search indexes are built together with the snapshot, so queries never rebuild them.
+ * The roster itself is held in compact form, employees are materialized only when read.
+ * A patch shares the base roster and its indexes and only copies a small delta on top,
+ * which is compacted into a new base once it grows past a threshold.
+ * Roster stats follow the same split, so aggregates are never recomputed over the whole roster on a patch.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.util.AgeIndex;
+import com.example.rqchallenge.util.NameIndex;
+import com.example.rqchallenge.util.ParallelSearch;
+import com.example.rqchallenge.util.SalaryIndex;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+@Getter
+public final class EmployeeSnapshot {
+
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+
+    /** base roster, without the delta */
+    private final EmployeeStore store;
+    private final List<Employee> employees;
+    private final long version;
+    private final long refreshedAt;
+    /** salary index of the base roster */
+    private final SalaryIndex salaryIndex;
+    /** name index of the base roster */
+    private final NameIndex nameIndex;
+    /** age index of the base roster */
+    private final AgeIndex ageIndex;
+    @Getter(AccessLevel.NONE)
+    private final ParallelSearch parallel;
+    @Getter(AccessLevel.NONE)
+    private final EmployeeDelta delta;
+    @Getter(AccessLevel.NONE)
+    private final RosterStats baseStats;
+    /** stats of the roster, delta included */
+    @Getter(AccessLevel.PACKAGE)
+    private final RosterStats stats;
+
+    public EmployeeSnapshot(List<Employee> employees, long version, long refreshedAt) {
+        this(EmployeeStore.of(employees), version, refreshedAt);
+    }
+
+    public EmployeeSnapshot(EmployeeStore store, long version, long refreshedAt) {
+        this(store, ParallelSearch.SEQUENTIAL, version, refreshedAt);
+    }
+
+    /**
+     * @param store
+     * @param parallel pool the indexes of large rosters are built and searched on
+     * @param version
+     * @param refreshedAt
+     */
+    public EmployeeSnapshot(EmployeeStore store, ParallelSearch parallel, long version, long refreshedAt) {
+        this.store = store;
+        this.employees = store.asList();
+        this.version = version;
+        this.refreshedAt = refreshedAt;
+        this.parallel = parallel;
+        this.salaryIndex = SalaryIndex.of(store, parallel);
+        this.nameIndex = NameIndex.of(store, parallel);
+        this.ageIndex = AgeIndex.of(store, parallel);
+        this.delta = EmployeeDelta.EMPTY;
+        this.baseStats = RosterStats.of(store);
+        this.stats = baseStats;
+    }
+
+    private EmployeeSnapshot(EmployeeSnapshot base, EmployeeDelta delta, long version, long refreshedAt) {
+        this.store = base.store;
+        this.version = version;
+        this.refreshedAt = refreshedAt;
+        this.parallel = base.parallel;
+        this.salaryIndex = base.salaryIndex;
+        this.nameIndex = base.nameIndex;
+        this.ageIndex = base.ageIndex;
+        this.delta = delta;
+        this.baseStats = base.baseStats;
+        this.stats = delta.isEmpty() ? baseStats : baseStats.plus(delta.stats);
+        this.employees = delta.isEmpty() ? store.asList() : new RosterView();
+    }
+
+    /**
+     * @return time in millis since the roster was fetched from upstream
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - refreshedAt;
+    }
+
+    public int size() {
+        return store.size() - delta.removed.length + delta.added.size();
+    }
+
+    /**
+     * @return number of changes applied on top of the base roster since it was built
+     */
+    public int getDeltaSize() {
+        return delta.size();
+    }
+
+    /**
+     * @param position roster position, as returned by the match and top methods
+     * @return employee at position, a new object on every call
+     */
+    public Employee get(int position) {
+        return position < store.size() ? store.get(position) : delta.added.get(position - store.size());
+    }
+
+    /**
+     * @param position roster position, as returned by the match and top methods
+     * @return name at position
+     */
+    public String nameAt(int position) {
+        return position < store.size() ? store.nameAt(position) : delta.added.nameAt(position - store.size());
+    }
+
+    /**
+     * @param position roster position
+     * @return salary at position, Integer.MIN_VALUE if it is missing
+     */
+    public int salaryOrMinAt(int position) {
+        return position < store.size() ? store.salaryOrMinAt(position) : delta.added.salaryOrMinAt(position - store.size());
+    }
+
+    /**
+     * @param position roster position
+     * @return age at position as a number, Integer.MIN_VALUE if it is missing or not numeric
+     */
+    public int ageOrMinAt(int position) {
+        return position < store.size() ? store.ageOrMinAt(position) : delta.added.ageOrMinAt(position - store.size());
+    }
+
+    /**
+     * @param position roster position
+     * @return ID at position
+     */
+    public Integer idAt(int position) {
+        return position < store.size() ? store.idAt(position) : delta.added.idAt(position - store.size());
+    }
+
+    /**
+     * Find roster positions whose name contains the term, or has a word starting with the term in prefix mode
+     * @param term
+     * @param prefix
+     * @return matching roster positions, ascending
+     */
+    public int[] matchName(String term, boolean prefix) {
+        int[] matches = nameIndex.match(term, prefix);
+        if (delta.isEmpty()) {
+            return matches;
+        }
+        int[] added = delta.addedNameIndex.match(term, prefix);
+        int[] result = new int[matches.length + added.length];
+        int size = 0;
+        for (int position : matches) {
+            if (!delta.isRemoved(position)) result[size++] = position;
+        }
+        // added positions follow the base, so the result stays ascending
+        for (int position : added) {
+            result[size++] = store.size() + position;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Employees with equal salary keep their roster order, employees without salary are ranked last
+     * @param count
+     * @return roster positions of the highest earning employees, highest first
+     */
+    public int[] topBySalary(int count) {
+        int[] positions = new int[Math.min(Math.max(count, 0), size())];
+        if (delta.isEmpty()) {
+            Arrays.setAll(positions, salaryIndex::positionAt);
+            return positions;
+        }
+        // merge the base ranking, skipping removed employees, with the ranking of the added ones
+        SalaryIndex added = delta.addedSalaryIndex;
+        int baseRank = 0;
+        int addedRank = 0;
+        for (int i = 0; i < positions.length; i++) {
+            while (baseRank < salaryIndex.size() && delta.isRemoved(salaryIndex.positionAt(baseRank))) baseRank++;
+            boolean fromBase = addedRank == added.size()
+                    || (baseRank < salaryIndex.size() && salaryIndex.salaryAt(baseRank) >= added.salaryAt(addedRank));
+            positions[i] = fromBase ? salaryIndex.positionAt(baseRank++) : store.size() + added.positionAt(addedRank++);
+        }
+        return positions;
+    }
+
+    /**
+     * Keyset page in ID order, employees without ID are left out.
+     * Costs O(log n + limit), plus the removed employees walked past when there is a delta.
+     * @param after ID of the last employee of the previous page, null for the first page
+     * @param limit
+     * @return roster positions of the employees following the ID, ascending by ID
+     */
+    public int[] pageById(Integer after, int limit) {
+        int[] base = store.positionsAfter(after, limit, position -> !delta.isRemoved(position));
+        if (delta.isEmpty()) {
+            return base;
+        }
+        int[] added = delta.added.positionsAfter(after, limit, position -> true);
+        for (int i = 0; i < added.length; i++) {
+            added[i] += store.size();
+        }
+        int[] merged = merge(base, added, position -> idAt(position));
+        return merged.length <= limit ? merged : Arrays.copyOf(merged, limit);
+    }
+
+    /**
+     * Employees with equal salary keep their roster order, employees without salary are never in range
+     * @param min lowest salary, inclusive
+     * @param max highest salary, inclusive
+     * @return roster positions with salary in range, highest first
+     */
+    public int[] salaryBetween(int min, int max) {
+        int[] base = inRange(salaryIndex.rankRange(min, max), salaryIndex::positionAt, 0);
+        if (delta.isEmpty()) {
+            return base;
+        }
+        SalaryIndex added = delta.addedSalaryIndex;
+        return merge(base, inRange(added.rankRange(min, max), added::positionAt, store.size()),
+                position -> -(long) salaryOrMinAt(position));
+    }
+
+    /**
+     * Employees of equal age keep their roster order, employees without a numeric age are never in range
+     * @param min lowest age, inclusive
+     * @param max highest age, inclusive
+     * @return roster positions with age in range, youngest first
+     */
+    public int[] ageBetween(int min, int max) {
+        int[] base = inRange(ageIndex.rankRange(min, max), ageIndex::positionAt, 0);
+        if (delta.isEmpty()) {
+            return base;
+        }
+        AgeIndex added = delta.addedAgeIndex;
+        return merge(base, inRange(added.rankRange(min, max), added::positionAt, store.size()), this::ageOrMinAt);
+    }
+
+    /**
+     * @return the highest salary
+     * @throws NoSuchElementException in case no employee has a salary
+     */
+    public int getHighestSalary() {
+        if (delta.isEmpty()) {
+            return salaryIndex.getHighestSalary();
+        }
+        int[] top = topBySalary(1);
+        int salary = top.length == 0 ? Integer.MIN_VALUE
+                : top[0] < store.size() ? store.salaryOrMinAt(top[0]) : delta.added.salaryOrMinAt(top[0] - store.size());
+        if (salary == Integer.MIN_VALUE) {
+            throw new NoSuchElementException("No employee has a salary");
+        }
+        return salary;
+    }
+
+    /**
+     * Nearest rank percentile, read from the salary indexes: O(1) without delta, O(log n) per bisection step with one
+     * @param percentile between 0 and 100, 0 is the lowest salary and 100 the highest
+     * @return salary at the percentile, among employees with salary
+     * @throws NoSuchElementException in case no employee has a salary
+     */
+    public int salaryAtPercentile(double percentile) {
+        long salaried = stats.getSalaried();
+        if (salaried == 0) {
+            throw new NoSuchElementException("No employee has a salary");
+        }
+        long ascending = Math.max((long) Math.ceil(percentile / 100 * salaried) - 1, 0);
+        int rank = (int) (salaried - 1 - Math.min(ascending, salaried - 1));
+        if (delta.isEmpty()) {
+            return salaryIndex.salaryAt(rank);
+        }
+        // highest salary that at least rank + 1 live employees earn
+        long low = Integer.MIN_VALUE + 1L;
+        long high = Integer.MAX_VALUE;
+        while (low < high) {
+            long middle = (low + high + 1) >> 1;
+            if (countEarningAtLeast((int) middle) > rank) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return (int) low;
+    }
+
+    /**
+     * @return the roster as one compact store, the base itself while there is no delta
+     */
+    public EmployeeStore toStore() {
+        return delta.isEmpty() ? store : delta.applyTo(store).build();
+    }
+
+    /**
+     * Same snapshot, confirmed unchanged by upstream at the given time. Roster, indexes and version are shared.
+     * @param refreshedAt
+     * @return revalidated snapshot
+     */
+    EmployeeSnapshot revalidated(long refreshedAt) {
+        return new EmployeeSnapshot(this, delta, version, refreshedAt);
+    }
+
+    /**
+     * Copy of this snapshot with given employee added (or replaced, if the ID already exists)
+     * @param employee
+     * @param newVersion
+     * @return patched snapshot
+     */
+    EmployeeSnapshot withEmployee(Employee employee, long newVersion) {
+        return withChanges(List.of(employee), List.of(), newVersion, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Copy of this snapshot without the given employee ID
+     * @param id
+     * @param newVersion
+     * @return patched snapshot
+     */
+    EmployeeSnapshot withoutEmployee(Integer id, long newVersion) {
+        return withChanges(List.of(), Collections.singletonList(id), newVersion, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Copy of this snapshot with several changes applied at once.
+     * Added employees replace existing ones with the same ID, removed IDs are dropped.
+     * The base roster and its indexes are shared, unless the delta grows past the threshold and is compacted into a new base.
+     * @param added
+     * @param removedIds
+     * @param newVersion
+     * @param compactionThreshold largest delta kept on top of the base
+     * @return patched snapshot
+     */
+    EmployeeSnapshot withChanges(Collection<Employee> added, Collection<Integer> removedIds, long newVersion, int compactionThreshold) {
+        EmployeeDelta patched = delta.with(store, added, removedIds, parallel);
+        if (patched.size() > compactionThreshold) {
+            return new EmployeeSnapshot(patched.applyTo(store).build(), parallel, newVersion, refreshedAt);
+        }
+        return new EmployeeSnapshot(this, patched, newVersion, refreshedAt);
+    }
+
+    private int countEarningAtLeast(int salary) {
+        return salaryIndex.countAtLeast(salary) - delta.removedEarningAtLeast(salary)
+                + delta.addedSalaryIndex.countAtLeast(salary);
+    }
+
+    /**
+     * @param ranks first rank and the rank after the last one
+     * @param positionAt roster position at rank of the index
+     * @param offset added to index positions, the store size for indexes of the added employees
+     * @return live roster positions in rank order
+     */
+    private int[] inRange(int[] ranks, IntUnaryOperator positionAt, int offset) {
+        int[] positions = new int[ranks[1] - ranks[0]];
+        int size = 0;
+        for (int rank = ranks[0]; rank < ranks[1]; rank++) {
+            int position = positionAt.applyAsInt(rank);
+            if (offset > 0 || !delta.isRemoved(position)) positions[size++] = offset + position;
+        }
+        return size == positions.length ? positions : Arrays.copyOf(positions, size);
+    }
+
+    /**
+     * @param base base positions ordered by key
+     * @param added added positions ordered by key
+     * @param key
+     * @return both merged by key, base first on equal keys so roster order is kept
+     */
+    private static int[] merge(int[] base, int[] added, IntToLongFunction key) {
+        if (added.length == 0) {
+            return base;
+        }
+        int[] merged = new int[base.length + added.length];
+        for (int i = 0, b = 0, a = 0; i < merged.length; i++) {
+            boolean fromBase = a == added.length
+                    || (b < base.length && key.applyAsLong(base[b]) <= key.applyAsLong(added[a]));
+            merged[i] = fromBase ? base[b++] : added[a++];
+        }
+        return merged;
+    }
+
+    /**
+     * Roster position of the employee at the list index: base employees not removed, followed by the added ones
+     */
+    private int positionAt(int index) {
+        int baseLive = store.size() - delta.removed.length;
+        if (index >= baseLive) {
+            return store.size() + index - baseLive;
+        }
+        // smallest base position with index + 1 employees left up to and including it
+        int low = index;
+        int high = index + delta.removed.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (middle + 1 - delta.removedThrough(middle) > index) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Read-only list view over the base and the delta, employees are materialized as they are read
+     */
+    private final class RosterView extends AbstractList<Employee> implements RandomAccess {
+        @Override
+        public Employee get(int index) {
+            Objects.checkIndex(index, size());
+            return EmployeeSnapshot.this.get(positionAt(index));
+        }
+
+        @Override
+        public int size() {
+            return EmployeeSnapshot.this.size();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Employee snapshot cache holds the latest published employee snapshot along with hit/miss counters.
+ * Readers never block, a new snapshot is swapped in atomically on refresh or patch.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.util.ParallelSearch;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+public class EmployeeSnapshotCache {
+
+    private final AtomicReference<EmployeeSnapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicBoolean servingStale = new AtomicBoolean();
+    private EmployeeStore source;
+    // distinguishes versions of this process from those of an earlier run in entity tags
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong staleFallbacks = new AtomicLong();
+
+    private final ParallelSearch parallel;
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-snapshot-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EmployeeSnapshotCache() {
+        this(ParallelSearch.SEQUENTIAL);
+    }
+
+    /**
+     * @param parallel pool the indexes of published snapshots are built on
+     */
+    public EmployeeSnapshotCache(ParallelSearch parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return latest published snapshot, null if nothing has been loaded yet
+     */
+    public EmployeeSnapshot get() {
+        return current.get();
+    }
+
+    /**
+     * Publish freshly fetched roster as the new snapshot.
+     * A roster already published (shared by concurrent callers of one upstream call, or reused on a 304 from upstream)
+     * is not built again, the current snapshot is only marked as refreshed and keeps its version.
+     * @param store
+     * @return published snapshot
+     */
+    public synchronized EmployeeSnapshot publish(EmployeeStore store) {
+        if (store == source) {
+            long now = System.currentTimeMillis();
+            // a patch applied meanwhile is kept, only its refresh time moves
+            EmployeeSnapshot revalidated = current.updateAndGet(snapshot -> Objects.isNull(snapshot) ? null : snapshot.revalidated(now));
+            if (Objects.nonNull(revalidated)) {
+                servingStale.set(false);
+                revalidations.incrementAndGet();
+                return revalidated;
+            }
+        }
+        source = store;
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(store, parallel, versions.incrementAndGet(), System.currentTimeMillis());
+        current.set(snapshot);
+        servingStale.set(false);
+        refreshes.incrementAndGet();
+        log.debug("Published employee snapshot version:{}, size:{}", snapshot.getVersion(), snapshot.size());
+        return snapshot;
+    }
+
+    /**
+     * Publish a roster persisted by an earlier run, unless a snapshot was published meanwhile.
+     * It keeps the time it was fetched, so it ages and is refreshed like any other snapshot.
+     * @param store
+     * @param refreshedAt
+     * @return restored snapshot, null in case there already is one
+     */
+    public synchronized EmployeeSnapshot restore(EmployeeStore store, long refreshedAt) {
+        if (Objects.nonNull(current.get())) {
+            return null;
+        }
+        source = store;
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(store, parallel, versions.incrementAndGet(), refreshedAt);
+        current.set(snapshot);
+        restores.incrementAndGet();
+        log.info("Restored employee snapshot version:{}, size:{}, age:{} ms", snapshot.getVersion(), snapshot.size(), snapshot.getAgeMillis());
+        return snapshot;
+    }
+
+    /**
+     * Apply a change to the current snapshot, if there is one. Refresh time of the snapshot is kept as is.
+     * @param change
+     */
+    public void patch(PatchFunction change) {
+        current.updateAndGet(snapshot -> Objects.isNull(snapshot) ? null : change.apply(snapshot, versions.incrementAndGet()));
+    }
+
+    /**
+     * @param snapshot
+     * @return strong entity tag of responses computed from the snapshot, changes with every published or patched version
+     */
+    public String getETag(EmployeeSnapshot snapshot) {
+        return "\"" + epoch + "-" + snapshot.getVersion() + "\"";
+    }
+
+    /**
+     * Drop the current snapshot, next read goes to upstream
+     */
+    public void invalidate() {
+        current.set(null);
+    }
+
+    /**
+     * Run refresh on the background thread, unless one is already running
+     * @param refresh
+     */
+    public void refreshInBackground(Runnable refresh) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    refresh.run();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+            log.debug("Skipped background refresh, employee snapshot cache is closed");
+        }
+    }
+
+    /**
+     * Stop the background refresh thread, a refresh already running is finished
+     */
+    public void close() {
+        refresher.shutdown();
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordStaleHit() {
+        staleHits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordRefreshFailure() {
+        refreshFailures.incrementAndGet();
+    }
+
+    /**
+     * Record that the last good snapshot is served past its TTL because upstream could not be reached,
+     * until the next successful refresh
+     */
+    public void recordStaleFallback() {
+        staleFallbacks.incrementAndGet();
+        servingStale.set(true);
+    }
+
+    /**
+     * @return true while the last good snapshot is served because upstream could not be reached
+     */
+    public boolean isServingStale() {
+        return servingStale.get();
+    }
+
+    /**
+     * @return snapshot age and hit/miss counters
+     */
+    public Map<String, Object> getStats() {
+        EmployeeSnapshot snapshot = current.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", Objects.isNull(snapshot) ? 0 : snapshot.getVersion());
+        stats.put("size", Objects.isNull(snapshot) ? 0 : snapshot.size());
+        stats.put("deltaSize", Objects.isNull(snapshot) ? 0 : snapshot.getDeltaSize());
+        stats.put("ageMillis", Objects.isNull(snapshot) ? -1 : snapshot.getAgeMillis());
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("revalidations", revalidations.get());
+        stats.put("restores", restores.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        stats.put("staleFallbacks", staleFallbacks.get());
+        stats.put("servingStale", servingStale.get());
+        return stats;
+    }
+
+    @FunctionalInterface
+    public interface PatchFunction {
+        EmployeeSnapshot apply(EmployeeSnapshot snapshot, long newVersion);
+    }
+}
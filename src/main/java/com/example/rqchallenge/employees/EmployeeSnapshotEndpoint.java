@@ -0,0 +1,24 @@
+/*
+ * Employee snapshot endpoint exposes snapshot age and hit/miss counters over actuator (/actuator/snapshot)
+ */
+package com.example.rqchallenge.employees;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "snapshot")
+public class EmployeeSnapshotEndpoint {
+
+    @Autowired
+    EmployeeService employeeService;
+
+    @ReadOperation
+    public Map<String, Object> snapshot() {
+        return employeeService.getSnapshotStats();
+    }
+}
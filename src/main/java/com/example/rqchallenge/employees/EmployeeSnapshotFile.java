@@ -0,0 +1,191 @@
+/*
+ * Employee snapshot file persists the roster of the latest refreshed snapshot to local disk, so a restarted instance
+ * starts warm instead of waiting for (and stampeding) upstream.
+ * The file holds the compact store arrays as they are, written to a temporary file and atomically moved in place,
+ * and is read back through a memory mapping with a checksum check. A missing, foreign or damaged file is ignored.
+ */
+package com.example.rqchallenge.employees;
+
+import com.example.rqchallenge.config.CommonConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+@Slf4j
+public class EmployeeSnapshotFile {
+
+    private static final int MAGIC = 0x52514553; // "RQES"
+    private static final int FORMAT = 1;
+    // magic, format, refreshed at
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    @Getter
+    private final Path path;
+    private final AtomicReference<EmployeeSnapshot> pending = new AtomicReference<>();
+    private volatile long lastVersion = -1;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-snapshot-write");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EmployeeSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @param config
+     * @return snapshot file, null when no file is configured
+     */
+    public static EmployeeSnapshotFile of(CommonConfig config) {
+        String file = config.getSnapshotFile();
+        return Objects.isNull(file) || file.isBlank() ? null : new EmployeeSnapshotFile(Paths.get(file));
+    }
+
+    /**
+     * Write the snapshot on the writer thread, unless its version was written already (e.g. revalidated by upstream).
+     * Snapshots published while a write runs replace each other, only the latest one is written next.
+     * @param snapshot
+     */
+    public void writeInBackground(EmployeeSnapshot snapshot) {
+        if (snapshot.getVersion() == lastVersion) {
+            return;
+        }
+        lastVersion = snapshot.getVersion();
+        if (Objects.nonNull(pending.getAndSet(snapshot))) {
+            return;
+        }
+        try {
+            writer.execute(() -> {
+                EmployeeSnapshot latest = pending.getAndSet(null);
+                try {
+                    write(latest);
+                } catch (Exception e) {
+                    log.error(String.format("Error occurred while writing the employee snapshot to %s", path), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.set(null);
+            log.warn("Skipped writing employee snapshot version:{}, snapshot file is closed", snapshot.getVersion());
+        }
+    }
+
+    /**
+     * Stop the writer thread, waiting a bounded time for a pending write to finish so the next start restores the latest roster
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Employee snapshot write to {} did not finish within {} s", path, CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for employee snapshot write to {}", path);
+        }
+    }
+
+    /**
+     * Write the snapshot roster, replacing the file atomically so readers never see a partial file
+     * @param snapshot
+     * @throws IOException
+     */
+    public void write(EmployeeSnapshot snapshot) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(snapshot.getRefreshedAt());
+                snapshot.toStore().writeTo(out);
+                out.flush();
+                // checksum trails the data it covers
+                ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES).putLong(0, crc.getValue());
+                while (checksum.hasRemaining()) channel.write(checksum);
+                channel.force(true);
+            }
+            move(temp);
+            log.debug("Wrote employee snapshot version:{}, size:{} to {}", snapshot.getVersion(), snapshot.size(), path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read the roster persisted last, through a memory mapping
+     * @return roster and the time it was fetched from upstream, empty when there is no usable file
+     */
+    public Optional<Persisted> read() {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + Long.BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected file length " + length);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit((int) length - Long.BYTES));
+            if (crc.getValue() != mapped.getLong((int) length - Long.BYTES)) {
+                throw new IOException("Checksum mismatch");
+            }
+            if (mapped.getInt() != MAGIC || mapped.getInt() != FORMAT) {
+                throw new IOException("Unknown file format");
+            }
+            long refreshedAt = mapped.getLong();
+            EmployeeStore store = EmployeeStore.readFrom(mapped.limit((int) length - Long.BYTES));
+            return Optional.of(new Persisted(store, refreshedAt));
+        } catch (IOException e) {
+            log.warn("Ignoring employee snapshot file {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void move(Path temp) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Getter
+    public static final class Persisted {
+        private final EmployeeStore store;
+        private final long refreshedAt;
+
+        Persisted(EmployeeStore store, long refreshedAt) {
+            this.store = store;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Employee stats are the salary aggregates of one roster snapshot: average, percentiles and histograms by age.
+ * They are read from the running roster stats and the salary indexes of the snapshot, never from the employee list.
+ */
+package com.example.rqchallenge.employees;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeStats {
+
+    private long version;
+    private long count;
+    /** employees with salary, the salary aggregates cover only those */
+    private long salaried;
+    private Double averageSalary;
+    private Integer minSalary;
+    private Integer maxSalary;
+    /** salary by percentile, keyed as p50, p99.9 */
+    private Map<String, Integer> percentiles;
+    private List<SalaryBucket> salaryHistogram;
+    private List<AgeBucket> ageBuckets;
+
+    /**
+     * @param snapshot
+     * @param percentiles between 0 and 100
+     * @return stats of the snapshot
+     */
+    public static EmployeeStats of(EmployeeSnapshot snapshot, List<Double> percentiles) {
+        RosterStats stats = snapshot.getStats();
+        EmployeeStats result = new EmployeeStats();
+        result.setVersion(snapshot.getVersion());
+        result.setCount(stats.getCount());
+        result.setSalaried(stats.getSalaried());
+        result.setAverageSalary(average(stats.getSalarySum(), stats.getSalaried()));
+        if (stats.getSalaried() > 0) {
+            result.setMinSalary(snapshot.salaryAtPercentile(0));
+            result.setMaxSalary(snapshot.salaryAtPercentile(100));
+            Map<String, Integer> salaries = new LinkedHashMap<>();
+            percentiles.forEach(percentile -> salaries.put(key(percentile), snapshot.salaryAtPercentile(percentile)));
+            result.setPercentiles(salaries);
+        }
+
+        List<SalaryBucket> histogram = new ArrayList<>();
+        for (int salary = 0; salary < RosterStats.SALARY_BUCKETS; salary++) {
+            long count = 0;
+            for (int age = 0; age < RosterStats.AGE_BUCKETS; age++) {
+                count += stats.getHistogram(age, salary);
+            }
+            histogram.add(new SalaryBucket(salary == 0 ? null : salary * RosterStats.SALARY_BUCKET_WIDTH,
+                    salary == RosterStats.SALARY_BUCKETS - 1 ? null : (salary + 1) * RosterStats.SALARY_BUCKET_WIDTH - 1, count));
+        }
+        result.setSalaryHistogram(histogram);
+
+        List<AgeBucket> ageBuckets = new ArrayList<>();
+        for (int age = 0; age < RosterStats.AGE_BUCKETS; age++) {
+            List<Long> salaryCounts = new ArrayList<>();
+            for (int salary = 0; salary < RosterStats.SALARY_BUCKETS; salary++) {
+                salaryCounts.add(stats.getHistogram(age, salary));
+            }
+            boolean known = age != RosterStats.UNKNOWN_AGE;
+            Integer from = known && age > 0 ? RosterStats.AGE_BUCKET_START + (age - 1) * RosterStats.AGE_BUCKET_WIDTH : null;
+            Integer to = known && age < RosterStats.UNKNOWN_AGE - 1 ? RosterStats.AGE_BUCKET_START + age * RosterStats.AGE_BUCKET_WIDTH - 1 : null;
+            ageBuckets.add(new AgeBucket(from, to, known, stats.getCount(age), stats.getSalaried(age),
+                    average(stats.getSalarySum(age), stats.getSalaried(age)), salaryCounts));
+        }
+        result.setAgeBuckets(ageBuckets);
+        return result;
+    }
+
+    private static Double average(long sum, long count) {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    private static String key(double percentile) {
+        return percentile == Math.rint(percentile) ? "p" + (long) percentile : "p" + percentile;
+    }
+
+    /**
+     * Salary range, inclusive, an open end is null
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SalaryBucket {
+        private Integer from;
+        private Integer to;
+        private long count;
+    }
+
+    /**
+     * Age range, inclusive, an open end is null. The bucket of missing or non numeric ages is not known.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class AgeBucket {
+        private Integer from;
+        private Integer to;
+        private boolean known;
+        private long count;
+        private long salaried;
+        private Double averageSalary;
+        /** employees per bucket of the salary histogram */
+        private List<Long> salaryHistogram;
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Employee store keeps a roster in struct-of-arrays form: primitive ids, salaries and ages,
+ * names as UTF-8 bytes in one shared array and profile images pooled.
+ * Employee objects are only materialized when read, so holding and scanning a large roster costs a few arrays instead of several objects per employee.
+ */
+package com.example.rqchallenge.employees;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+public final class EmployeeStore {
+
+    private static final EmployeeStore EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] salaries;
+    private final short[] ages;
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final String[] imagePool;
+    private final int[] images;
+    // null values and ages which do not fit a short as is, all rare
+    private final BitSet nullIds;
+    private final BitSet nullSalaries;
+    private final BitSet nullNames;
+    private final Map<Integer, String> irregularAges;
+    // ID in the high half, position in the low half, sorted; built on first lookup by ID
+    private volatile long[] idKeys;
+
+    private EmployeeStore(Builder builder) {
+        this(builder.size, Arrays.copyOf(builder.ids, builder.size), Arrays.copyOf(builder.salaries, builder.size),
+                Arrays.copyOf(builder.ages, builder.size), Arrays.copyOf(builder.names, builder.nameBytes),
+                Arrays.copyOf(builder.nameOffsets, builder.size + 1), builder.imagePool.toArray(new String[0]),
+                Arrays.copyOf(builder.images, builder.size), builder.nullIds, builder.nullSalaries, builder.nullNames,
+                builder.irregularAges);
+    }
+
+    private EmployeeStore(int size, int[] ids, int[] salaries, short[] ages, byte[] names, int[] nameOffsets, String[] imagePool,
+                          int[] images, BitSet nullIds, BitSet nullSalaries, BitSet nullNames, Map<Integer, String> irregularAges) {
+        this.size = size;
+        this.ids = ids;
+        this.salaries = salaries;
+        this.ages = ages;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.imagePool = imagePool;
+        this.images = images;
+        this.nullIds = nullIds;
+        this.nullSalaries = nullSalaries;
+        this.nullNames = nullNames;
+        this.irregularAges = irregularAges.isEmpty() ? Collections.emptyMap() : irregularAges;
+    }
+
+    public static EmployeeStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param employees
+     * @return store holding the employees in the given order
+     */
+    public static EmployeeStore of(List<Employee> employees) {
+        Builder builder = builder(employees.size());
+        employees.forEach(builder);
+        return builder.build();
+    }
+
+    /**
+     * @param expectedSize initial capacity, the builder grows past it as needed
+     * @return builder accepting employees one by one, e.g. straight from the response parser
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param position roster position
+     * @return ID at position, null if the employee has none
+     */
+    public Integer idAt(int position) {
+        return nullIds.get(position) ? null : ids[position];
+    }
+
+    /**
+     * @param position roster position
+     * @return salary at position, null if the employee has none
+     */
+    public Integer salaryAt(int position) {
+        return nullSalaries.get(position) ? null : salaries[position];
+    }
+
+    /**
+     * @param position roster position
+     * @return salary at position, Integer.MIN_VALUE if the employee has none; no boxing
+     */
+    public int salaryOrMinAt(int position) {
+        return nullSalaries.get(position) ? Integer.MIN_VALUE : salaries[position];
+    }
+
+    /**
+     * @param position roster position
+     * @return name at position, decoded from the shared byte array
+     */
+    public String nameAt(int position) {
+        if (nullNames.get(position)) {
+            return null;
+        }
+        int from = nameOffsets[position];
+        return new String(names, from, nameOffsets[position + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param position roster position
+     * @return age at position, in the form it was received
+     */
+    public String ageAt(int position) {
+        short age = ages[position];
+        if (age == Builder.IRREGULAR_AGE) {
+            return irregularAges.get(position);
+        }
+        return String.valueOf(age);
+    }
+
+    /**
+     * @param position roster position
+     * @return age at position as a number, Integer.MIN_VALUE if it is missing or not numeric
+     */
+    public int ageOrMinAt(int position) {
+        short age = ages[position];
+        if (age != Builder.IRREGULAR_AGE) {
+            return age;
+        }
+        String irregular = irregularAges.get(position);
+        if (Objects.nonNull(irregular)) {
+            try {
+                int value = Integer.parseInt(irregular.trim());
+                if (value != Integer.MIN_VALUE) return value;
+            } catch (NumberFormatException e) {
+                // not an age
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param position roster position
+     * @return employee at position, a new object on every call
+     */
+    public Employee get(int position) {
+        return new Employee(idAt(position), nameAt(position), salaryAt(position), ageAt(position), imagePool[images[position]]);
+    }
+
+    /**
+     * @param id
+     * @return roster position of the first employee with the ID, -1 if there is none
+     */
+    public int positionOf(Integer id) {
+        if (Objects.isNull(id)) {
+            for (int position = 0; position < size; position++) {
+                if (nullIds.get(position)) return position;
+            }
+            return -1;
+        }
+        int[] positions = positionsOf(id);
+        return positions.length == 0 ? -1 : positions[0];
+    }
+
+    /**
+     * Look up by ID in O(log n), through an ID index built on the first lookup
+     * @param id
+     * @return roster positions of the employees with the ID, ascending
+     */
+    public int[] positionsOf(int id) {
+        long[] keys = idKeys();
+        int from = Arrays.binarySearch(keys, (long) id << 32);
+        from = from < 0 ? -from - 1 : from;
+        int to = from;
+        while (to < keys.length && (int) (keys[to] >> 32) == id) to++;
+        int[] positions = new int[to - from];
+        for (int i = from; i < to; i++) {
+            positions[i - from] = (int) keys[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Walk the ID index in ascending ID order, starting after the given ID. Employees without ID are never returned.
+     * @param after ID to start after, null to start from the lowest
+     * @param limit max number of positions to return
+     * @param keep accepts the positions to return, the walk stops once limit positions are accepted
+     * @return accepted roster positions, ascending by ID then position
+     */
+    public int[] positionsAfter(Integer after, int limit, IntPredicate keep) {
+        long[] keys = idKeys();
+        if (Objects.nonNull(after) && after == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+        int from = 0;
+        if (Objects.nonNull(after)) {
+            from = Arrays.binarySearch(keys, (long) (after + 1) << 32);
+            from = from < 0 ? -from - 1 : from;
+        }
+        int[] positions = new int[Math.min(Math.max(limit, 0), keys.length - from)];
+        int count = 0;
+        for (int i = from; i < keys.length && count < positions.length; i++) {
+            int position = (int) keys[i];
+            if (keep.test(position)) positions[count++] = position;
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+
+    private long[] idKeys() {
+        long[] keys = idKeys;
+        if (Objects.isNull(keys)) {
+            keys = buildIdKeys();
+            idKeys = keys;
+        }
+        return keys;
+    }
+
+    private long[] buildIdKeys() {
+        long[] keys = new long[size - nullIds.cardinality()];
+        int count = 0;
+        for (int position = 0; position < size; position++) {
+            if (!nullIds.get(position)) keys[count++] = ((long) ids[position] << 32) | position;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * @return read-only list view, employees are materialized as they are read
+     */
+    public List<Employee> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Copy this store into a new builder, keeping only the employees at accepted positions
+     * @param keep accepts the positions to copy
+     * @param extra capacity to reserve for employees added afterwards
+     * @return builder holding the copied employees
+     */
+    Builder copy(IntPredicate keep, int extra) {
+        Builder builder = builder(size + extra);
+        for (int position = 0; position < size; position++) {
+            if (keep.test(position)) builder.append(this, position);
+        }
+        return builder;
+    }
+
+    /**
+     * Write the store in binary form, the arrays as they are held in memory, so reading it back is a few bulk copies
+     * @param out
+     * @throws IOException
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int id : ids) out.writeInt(id);
+        for (int salary : salaries) out.writeInt(salary);
+        for (short age : ages) out.writeShort(age);
+        for (int offset : nameOffsets) out.writeInt(offset);
+        for (int image : images) out.writeInt(image);
+        out.writeInt(names.length);
+        out.write(names);
+        writeBits(out, nullIds);
+        writeBits(out, nullSalaries);
+        writeBits(out, nullNames);
+        out.writeInt(imagePool.length);
+        for (String image : imagePool) writeString(out, image);
+        out.writeInt(irregularAges.size());
+        for (Map.Entry<Integer, String> age : irregularAges.entrySet()) {
+            out.writeInt(age.getKey());
+            writeString(out, age.getValue());
+        }
+    }
+
+    /**
+     * Read a store written by {@link #writeTo(DataOutputStream)}, e.g. from a memory mapped file
+     * @param in positioned at the start of the store, left positioned after it
+     * @return store
+     * @throws IOException in case the data is truncated or inconsistent
+     */
+    static EmployeeStore readFrom(ByteBuffer in) throws IOException {
+        try {
+            int size = in.getInt();
+            if (size < 0) throw new IOException("Invalid employee store size " + size);
+            int[] ids = readInts(in, size);
+            int[] salaries = readInts(in, size);
+            short[] ages = new short[size];
+            in.asShortBuffer().get(ages);
+            in.position(in.position() + size * Short.BYTES);
+            int[] nameOffsets = readInts(in, size + 1);
+            int[] images = readInts(in, size);
+            byte[] names = new byte[in.getInt()];
+            in.get(names);
+            BitSet nullIds = readBits(in);
+            BitSet nullSalaries = readBits(in);
+            BitSet nullNames = readBits(in);
+            String[] imagePool = new String[in.getInt()];
+            for (int i = 0; i < imagePool.length; i++) imagePool[i] = readString(in);
+            int irregular = in.getInt();
+            Map<Integer, String> irregularAges = new HashMap<>();
+            for (int i = 0; i < irregular; i++) irregularAges.put(in.getInt(), readString(in));
+            if (nameOffsets[size] != names.length || Arrays.stream(images).anyMatch(image -> image < 0 || image >= imagePool.length)) {
+                throw new IOException("Inconsistent employee store");
+            }
+            return new EmployeeStore(size, ids, salaries, ages, names, nameOffsets, imagePool, images, nullIds, nullSalaries, nullNames,
+                    irregularAges);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or invalid employee store", e);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) out.writeLong(word);
+    }
+
+    private static BitSet readBits(ByteBuffer in) {
+        long[] words = new long[in.getInt()];
+        in.asLongBuffer().get(words);
+        in.position(in.position() + words.length * Long.BYTES);
+        return BitSet.valueOf(words);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (Objects.isNull(value)) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final class ListView extends AbstractList<Employee> implements RandomAccess {
+        @Override
+        public Employee get(int index) {
+            Objects.checkIndex(index, size);
+            return EmployeeStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Growable builder, not thread safe and used for one store only
+     */
+    public static final class Builder implements Consumer<Employee> {
+
+        private static final short IRREGULAR_AGE = Short.MIN_VALUE;
+
+        private int size;
+        private int[] ids;
+        private int[] salaries;
+        private short[] ages;
+        private byte[] names;
+        private int nameBytes;
+        private int[] nameOffsets;
+        private int[] images;
+        private final List<String> imagePool = new ArrayList<>();
+        private final Map<String, Integer> imageRefs = new HashMap<>();
+        private final BitSet nullIds = new BitSet();
+        private final BitSet nullSalaries = new BitSet();
+        private final BitSet nullNames = new BitSet();
+        private final Map<Integer, String> irregularAges = new HashMap<>();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            ids = new int[capacity];
+            salaries = new int[capacity];
+            ages = new short[capacity];
+            images = new int[capacity];
+            nameOffsets = new int[capacity + 1];
+            names = new byte[capacity * 16];
+        }
+
+        @Override
+        public void accept(Employee employee) {
+            if (size == ids.length) grow();
+            int position = size++;
+
+            if (Objects.isNull(employee.getId())) nullIds.set(position);
+            else ids[position] = employee.getId();
+
+            if (Objects.isNull(employee.getEmployeeSalary())) nullSalaries.set(position);
+            else salaries[position] = employee.getEmployeeSalary();
+
+            ages[position] = encodeAge(position, employee.getEmployeeAge());
+
+            if (Objects.isNull(employee.getEmployeeName())) {
+                nullNames.set(position);
+            } else {
+                byte[] name = employee.getEmployeeName().getBytes(StandardCharsets.UTF_8);
+                if (nameBytes + name.length > names.length) {
+                    names = Arrays.copyOf(names, Math.max(names.length * 2, nameBytes + name.length));
+                }
+                System.arraycopy(name, 0, names, nameBytes, name.length);
+                nameBytes += name.length;
+            }
+            nameOffsets[position + 1] = nameBytes;
+
+            images[position] = imageRef(employee.getProfileImage());
+        }
+
+        private int imageRef(String image) {
+            return imageRefs.computeIfAbsent(image, key -> {
+                imagePool.add(key);
+                return imagePool.size() - 1;
+            });
+        }
+
+        /**
+         * Append the employee at the position of another store, copying its encoded form as is
+         */
+        private void append(EmployeeStore source, int from) {
+            if (size == ids.length) grow();
+            int position = size++;
+            ids[position] = source.ids[from];
+            if (source.nullIds.get(from)) nullIds.set(position);
+            salaries[position] = source.salaries[from];
+            if (source.nullSalaries.get(from)) nullSalaries.set(position);
+            ages[position] = source.ages[from];
+            if (ages[position] == IRREGULAR_AGE) irregularAges.put(position, source.irregularAges.get(from));
+            if (source.nullNames.get(from)) nullNames.set(position);
+            int nameFrom = source.nameOffsets[from];
+            int length = source.nameOffsets[from + 1] - nameFrom;
+            if (nameBytes + length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameBytes + length));
+            }
+            System.arraycopy(source.names, nameFrom, names, nameBytes, length);
+            nameBytes += length;
+            nameOffsets[position + 1] = nameBytes;
+            images[position] = imageRef(source.imagePool[source.images[from]]);
+        }
+
+        /**
+         * Append all employees of another store, copying their encoded form as is
+         * @param source
+         * @return this builder
+         */
+        Builder appendAll(EmployeeStore source) {
+            for (int position = 0; position < source.size; position++) {
+                append(source, position);
+            }
+            return this;
+        }
+
+        public EmployeeStore build() {
+            return new EmployeeStore(this);
+        }
+
+        private short encodeAge(int position, String age) {
+            if (Objects.nonNull(age) && !age.isEmpty() && age.length() <= 5) {
+                try {
+                    short value = Short.parseShort(age);
+                    // only ages which print back the same way are stored as numbers
+                    if (value != IRREGULAR_AGE && String.valueOf(value).equals(age)) return value;
+                } catch (NumberFormatException e) {
+                    // kept as received
+                }
+            }
+            irregularAges.put(position, age);
+            return IRREGULAR_AGE;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            images = Arrays.copyOf(images, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        }
+    }
+}
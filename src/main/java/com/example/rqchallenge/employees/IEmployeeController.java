@@ -1,38 +1,103 @@
 /*
  * IEmployeeController is interface for REST endpoints.
  * This provides employee operations over REST API.
+ * Operations which always go to upstream are asynchronous, request threads are released while upstream responds.
+ * Reads served from the employee snapshot carry an ETag and answer If-None-Match with 304.
+ * The hottest reads write bytes rendered once per snapshot version, gzipped when the client accepts it.
+ * Employee lists page by ID with limit and after, the next page is linked, and fields selects the JSON fields written.
  */
 package com.example.rqchallenge.employees;
 
+import com.example.rqchallenge.config.Constants;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1")
 public interface IEmployeeController {
 
-    @GetMapping("/employees")
-    ResponseEntity<List<Employee>> getAllEmployees();
+    @GetMapping(value = "/employees", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<byte[]> getAllEmployees(@RequestParam(required = false) Integer after,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String fields,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
 
-    @GetMapping("/search/{searchString}")
-    ResponseEntity<List<Employee>> getEmployeesByNameSearch(@PathVariable String searchString);
+    @GetMapping(value = "/employees", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamAllEmployees();
+
+    @GetMapping(value = "/search/{searchString}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<byte[]> getEmployeesByNameSearch(@PathVariable String searchString,
+                                                    @RequestParam(defaultValue = "false") boolean prefix,
+                                                    @RequestParam(defaultValue = "false") boolean allTokens,
+                                                    @RequestParam(defaultValue = "0") int offset,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) Integer after,
+                                                    @RequestParam(required = false) String fields,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+    @GetMapping("/salaryRange")
+    ResponseEntity<List<Employee>> getEmployeesBySalaryRange(@RequestParam(required = false) Integer min,
+                                                             @RequestParam(required = false) Integer max,
+                                                             @RequestParam(required = false) Integer minAge,
+                                                             @RequestParam(required = false) Integer maxAge,
+                                                             @RequestParam(required = false) String name,
+                                                             @RequestParam(defaultValue = "false") boolean prefix,
+                                                             @RequestParam(defaultValue = "salary") String sort,
+                                                             @RequestParam(defaultValue = "desc") String order,
+                                                             @RequestParam(defaultValue = "0") int offset,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+    @GetMapping("/ageRange")
+    ResponseEntity<List<Employee>> getEmployeesByAgeRange(@RequestParam(required = false) Integer min,
+                                                          @RequestParam(required = false) Integer max,
+                                                          @RequestParam(required = false) Integer minSalary,
+                                                          @RequestParam(required = false) Integer maxSalary,
+                                                          @RequestParam(required = false) String name,
+                                                          @RequestParam(defaultValue = "false") boolean prefix,
+                                                          @RequestParam(defaultValue = "age") String sort,
+                                                          @RequestParam(defaultValue = "asc") String order,
+                                                          @RequestParam(defaultValue = "0") int offset,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+    @GetMapping("/stats")
+    ResponseEntity<EmployeeStats> getEmployeeStats(@RequestParam(defaultValue = "50,90,99") List<Double> percentiles,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
     @GetMapping("/employee/{id}")
-    ResponseEntity<Employee> getEmployeeById(@PathVariable String id);
+    CompletableFuture<ResponseEntity<Employee>> getEmployeeById(@PathVariable String id);
 
-    @GetMapping("/highestSalary")
-    ResponseEntity<Integer> getHighestSalaryOfEmployees();
+    @GetMapping(value = "/highestSalary", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<byte[]> getHighestSalaryOfEmployees(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
 
-    @GetMapping("/topTenHighestEarningEmployeeNames")
-    ResponseEntity<List<String>> getTopTenHighestEarningEmployeeNames();
+    @GetMapping(value = "/topTenHighestEarningEmployeeNames", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<byte[]> getTopTenHighestEarningEmployeeNames(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
+
+    @GetMapping("/topHighestEarningEmployeeNames")
+    ResponseEntity<List<String>> getTopHighestEarningEmployeeNames(@RequestParam(defaultValue = "" + Constants.TOP_RECORDS) int n,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
     @PostMapping()
-    ResponseEntity<Employee> createEmployee(@RequestBody Map<String, Object> employeeInput);
+    CompletableFuture<ResponseEntity<Employee>> createEmployee(@RequestBody Map<String, Object> employeeInput);
 
     @DeleteMapping("/{id}")
-    ResponseEntity<String> deleteEmployeeById(@PathVariable String id);
+    CompletableFuture<ResponseEntity<String>> deleteEmployeeById(@PathVariable String id);
+
+    @PostMapping("/batch")
+    CompletableFuture<ResponseEntity<List<BatchResult>>> createEmployees(@RequestBody List<Map<String, Object>> employeeInputs);
+
+    @DeleteMapping("/batch")
+    CompletableFuture<ResponseEntity<List<BatchResult>>> deleteEmployees(@RequestBody List<String> ids);
 
 }
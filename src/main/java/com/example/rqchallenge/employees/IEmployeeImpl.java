@@ -3,14 +3,29 @@
  */
 package com.example.rqchallenge.employees;
 
+import com.example.rqchallenge.config.Constants;
+import com.example.rqchallenge.util.NameQuery;
+import com.example.rqchallenge.util.RangeQuery;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 
 @RestController
@@ -18,14 +33,28 @@ import java.util.Map;
 @Tag(name = "Employee", description = "RQ Challenge")
 public class IEmployeeImpl implements IEmployeeController{
 
+    private static final String GZIP = "gzip";
+    private static final ObjectWriter EMPLOYEE_WRITER = EmployeeResponseParser.MAPPER.writerFor(Employee.class);
+
     @Autowired
     EmployeeService employeeService;
 
 
     @Override
-    public ResponseEntity<List<Employee>> getAllEmployees(){
+    public ResponseEntity<byte[]> getAllEmployees(Integer after, Integer limit, String fields, String ifNoneMatch, String acceptEncoding){
+        EmployeeFields projection = EmployeeFields.parse(fields);
+        if(Objects.isNull(projection) || (Objects.nonNull(limit) && limit < 0)){
+            return ResponseEntity.badRequest().build();
+        }
         try{
-            return ResponseEntity.ok().body(employeeService.getAllEmployees());
+            if(Objects.nonNull(after) || Objects.nonNull(limit)){
+                int pageSize = Objects.isNull(limit) ? Integer.MAX_VALUE : limit;
+                return fromSnapshotPage(ifNoneMatch, snapshot -> employeeService.getEmployeesPage(snapshot, after, pageSize), projection, pageSize);
+            }
+            if(!projection.isAll()){
+                return fromSnapshotPage(ifNoneMatch, EmployeeSnapshot::getEmployees, projection, null);
+            }
+            return fromRendered(ifNoneMatch, acceptEncoding, EmployeeResponseCache.View.ALL_EMPLOYEES);
         } catch (Exception e) {
                 log.error("Error occurred while retrieving all employee data",e);
             return ResponseEntity.unprocessableEntity().build();
@@ -33,9 +62,37 @@ public class IEmployeeImpl implements IEmployeeController{
     }
 
     @Override
-    public ResponseEntity<List<Employee>> getEmployeesByNameSearch(String searchString) {
+    public ResponseEntity<StreamingResponseBody> streamAllEmployees() {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                employeeService.streamAllEmployees(employee -> {
+                    try {
+                        outputStream.write(EMPLOYEE_WRITER.writeValueAsBytes(employee));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Error occurred while streaming all employee data", e);
+                throw new IOException("Error occurred while streaming all employee data", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Override
+    public ResponseEntity<byte[]> getEmployeesByNameSearch(String searchString, boolean prefix, boolean allTokens,
+                                                           int offset, Integer limit, Integer after, String fields, String ifNoneMatch) {
+        EmployeeFields projection = EmployeeFields.parse(fields);
+        if(offset < 0 || (Objects.nonNull(limit) && limit < 0) || Objects.isNull(projection)
+                || (Objects.nonNull(after) && offset > 0)){
+            return ResponseEntity.badRequest().build();
+        }
         try{
-            return ResponseEntity.ok().body(employeeService.getEmployeesByNameSearch(searchString));
+            NameQuery query = new NameQuery(searchString, prefix, allTokens, offset, limit, after);
+            return fromSnapshotPage(ifNoneMatch, snapshot -> employeeService.getEmployeesByNameSearch(snapshot, query), projection,
+                    Objects.isNull(after) ? null : limit);
         } catch (Exception e) {
             log.error("Error occurred while searching employee data",e);
             return ResponseEntity.unprocessableEntity().build();
@@ -43,19 +100,46 @@ public class IEmployeeImpl implements IEmployeeController{
     }
 
     @Override
-    public ResponseEntity<Employee> getEmployeeById(String id) {
+    public ResponseEntity<List<Employee>> getEmployeesBySalaryRange(Integer min, Integer max, Integer minAge, Integer maxAge,
+                                                                    String name, boolean prefix, String sort, String order,
+                                                                    int offset, Integer limit, String ifNoneMatch) {
+        return getEmployeesByRange(min, max, minAge, maxAge, name, prefix, sort, order, offset, limit, ifNoneMatch);
+    }
+
+    @Override
+    public ResponseEntity<List<Employee>> getEmployeesByAgeRange(Integer min, Integer max, Integer minSalary, Integer maxSalary,
+                                                                 String name, boolean prefix, String sort, String order,
+                                                                 int offset, Integer limit, String ifNoneMatch) {
+        return getEmployeesByRange(minSalary, maxSalary, min, max, name, prefix, sort, order, offset, limit, ifNoneMatch);
+    }
+
+    @Override
+    public ResponseEntity<EmployeeStats> getEmployeeStats(List<Double> percentiles, String ifNoneMatch) {
+        if(percentiles.stream().anyMatch(percentile -> Objects.isNull(percentile) || !(percentile >= 0 && percentile <= 100))){
+            return ResponseEntity.badRequest().build();
+        }
         try{
-            return ResponseEntity.ok().body(employeeService.getEmployeeById(id));
+            return fromSnapshot(ifNoneMatch, snapshot -> employeeService.getEmployeeStats(snapshot, percentiles));
         } catch (Exception e) {
-            log.error(String.format("Error occurred while retrieving information of EmployeeID: %s", id),e);
-            return ResponseEntity.notFound().build();
+            log.error("Error occurred while retrieving employee stats", e);
+            return ResponseEntity.unprocessableEntity().build();
         }
     }
 
     @Override
-    public ResponseEntity<Integer> getHighestSalaryOfEmployees() {
+    public CompletableFuture<ResponseEntity<Employee>> getEmployeeById(String id) {
+        return employeeService.getEmployeeByIdAsync(id)
+                .thenApply(employee -> ResponseEntity.ok().body(employee))
+                .exceptionally(e -> {
+                    log.error(String.format("Error occurred while retrieving information of EmployeeID: %s", id),e);
+                    return ResponseEntity.notFound().build();
+                });
+    }
+
+    @Override
+    public ResponseEntity<byte[]> getHighestSalaryOfEmployees(String ifNoneMatch, String acceptEncoding) {
         try{
-            return ResponseEntity.ok().body(employeeService.getHighestSalaryOfEmployees());
+            return fromRendered(ifNoneMatch, acceptEncoding, EmployeeResponseCache.View.HIGHEST_SALARY);
         } catch (Exception e) {
             log.error("Error occurred while retrieving highest salary", e);
             return ResponseEntity.unprocessableEntity().build();
@@ -63,9 +147,9 @@ public class IEmployeeImpl implements IEmployeeController{
     }
 
     @Override
-    public ResponseEntity<List<String>> getTopTenHighestEarningEmployeeNames() {
+    public ResponseEntity<byte[]> getTopTenHighestEarningEmployeeNames(String ifNoneMatch, String acceptEncoding) {
         try{
-            return ResponseEntity.ok().body(employeeService.getTopTenHighestEarningEmployeeNames());
+            return fromRendered(ifNoneMatch, acceptEncoding, EmployeeResponseCache.View.TOP_TEN_NAMES);
         } catch (Exception e) {
             log.error("Error occurred while retrieving Top ten highest salary earning employee", e);
             return ResponseEntity.unprocessableEntity().build();
@@ -73,22 +157,207 @@ public class IEmployeeImpl implements IEmployeeController{
     }
 
     @Override
-    public ResponseEntity<Employee> createEmployee(Map<String, Object> employeeInput) {
+    public ResponseEntity<List<String>> getTopHighestEarningEmployeeNames(int n, String ifNoneMatch) {
+        if(n < 1){
+            return ResponseEntity.badRequest().build();
+        }
         try{
-            return ResponseEntity.ok().body(employeeService.createEmployee(employeeInput));
+            return fromSnapshot(ifNoneMatch, snapshot -> employeeService.getTopHighestEarningEmployeeNames(snapshot, n));
         } catch (Exception e) {
-            log.error("Error occurred while creating employees", e);
+            log.error(String.format("Error occurred while retrieving Top %d highest salary earning employee", n), e);
             return ResponseEntity.unprocessableEntity().build();
         }
     }
 
     @Override
-    public ResponseEntity<String> deleteEmployeeById(String id) {
+    public CompletableFuture<ResponseEntity<Employee>> createEmployee(Map<String, Object> employeeInput) {
+        return employeeService.createEmployeeAsync(employeeInput)
+                .thenApply(employee -> ResponseEntity.ok().body(employee))
+                .exceptionally(e -> {
+                    log.error("Error occurred while creating employees", e);
+                    return ResponseEntity.unprocessableEntity().build();
+                });
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<String>> deleteEmployeeById(String id) {
+        return employeeService.deleteEmployeeByIdAsync(id)
+                .thenApply(message -> ResponseEntity.ok().body(message))
+                .exceptionally(e -> {
+                    log.error(String.format("Error occurred while deleting employee ID : %s", id), e);
+                    return ResponseEntity.unprocessableEntity().build();
+                });
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<List<BatchResult>>> createEmployees(List<Map<String, Object>> employeeInputs) {
+        if(!isValidBatch(employeeInputs)){
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return employeeService.createEmployeesAsync(employeeInputs)
+                .thenApply(results -> ResponseEntity.ok().body(results))
+                .exceptionally(e -> {
+                    log.error("Error occurred while creating employees in batch", e);
+                    return ResponseEntity.unprocessableEntity().build();
+                });
+    }
+
+    @Override
+    public CompletableFuture<ResponseEntity<List<BatchResult>>> deleteEmployees(List<String> ids) {
+        if(!isValidBatch(ids)){
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return employeeService.deleteEmployeesAsync(ids)
+                .thenApply(results -> ResponseEntity.ok().body(results))
+                .exceptionally(e -> {
+                    log.error("Error occurred while deleting employees in batch", e);
+                    return ResponseEntity.unprocessableEntity().build();
+                });
+    }
+
+    /**
+     * Validate sort, order and range parameters, then serve the range query from one snapshot.
+     * Bad request when a parameter is invalid.
+     */
+    private ResponseEntity<List<Employee>> getEmployeesByRange(Integer minSalary, Integer maxSalary, Integer minAge, Integer maxAge,
+                                                               String name, boolean prefix, String sort, String order,
+                                                               int offset, Integer limit, String ifNoneMatch) {
+        RangeQuery.Sort sortBy = RangeQuery.Sort.parse(sort);
+        String direction = order.toLowerCase(Locale.ROOT);
+        if(Objects.isNull(sortBy) || !(direction.equals("asc") || direction.equals("desc"))){
+            return ResponseEntity.badRequest().build();
+        }
+        RangeQuery query = new RangeQuery(minSalary, maxSalary, minAge, maxAge, name, prefix, sortBy,
+                direction.equals("desc"), offset, limit);
+        if(!query.isValid()){
+            return ResponseEntity.badRequest().build();
+        }
         try{
-            return ResponseEntity.ok().body(employeeService.deleteEmployeeById(id));
+            return fromSnapshot(ifNoneMatch, snapshot -> employeeService.getEmployeesByRange(snapshot, query));
         } catch (Exception e) {
-            log.error(String.format("Error occurred while deleting employee ID : %s", id), e);
+            log.error("Error occurred while searching employees in range", e);
             return ResponseEntity.unprocessableEntity().build();
         }
     }
+
+    /**
+     * A batch must hold at least one and at most employee.batch.max-size items, each present
+     */
+    private boolean isValidBatch(List<?> items) {
+        return Objects.nonNull(items) && !items.isEmpty() && items.size() <= employeeService.getBatchMaxSize()
+                && items.stream().allMatch(Objects::nonNull);
+    }
+
+    /**
+     * Build response of a read of one snapshot, tagged with the ETag of that snapshot. The read is skipped and 304 returned
+     * when the client already holds this version. Flagged as stale while the snapshot is served because upstream is unavailable.
+     */
+    private <T> ResponseEntity<T> fromSnapshot(String ifNoneMatch, SnapshotRead<T> read) throws Exception {
+        EmployeeSnapshot snapshot = employeeService.getSnapshot();
+        String eTag = employeeService.getSnapshotETag(snapshot);
+        if(matches(ifNoneMatch, eTag)){
+            return snapshotHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag).build();
+        }
+        return snapshotHeaders(ResponseEntity.ok(), eTag).body(read.get(snapshot));
+    }
+
+    /**
+     * Build response of a snapshot read listing employees, only the projected fields are serialized.
+     * A full keyset page links the next one, starting after the ID of its last employee.
+     * @param keysetLimit page size of a keyset page, null when the list is not paged by ID
+     */
+    private ResponseEntity<byte[]> fromSnapshotPage(String ifNoneMatch, SnapshotRead<List<Employee>> read,
+                                                    EmployeeFields fields, Integer keysetLimit) throws Exception {
+        EmployeeSnapshot snapshot = employeeService.getSnapshot();
+        String eTag = employeeService.getSnapshotETag(snapshot);
+        if(matches(ifNoneMatch, eTag)){
+            return snapshotHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag).build();
+        }
+        List<Employee> employees = read.get(snapshot);
+        byte[] body = fields.write(employees);
+        ResponseEntity.BodyBuilder builder = snapshotHeaders(ResponseEntity.ok(), eTag);
+        if(Objects.nonNull(keysetLimit) && keysetLimit > 0 && employees.size() == keysetLimit){
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", employees.get(employees.size() - 1).getId())
+                    .build().toUriString();
+            builder.header(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next));
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).contentLength(body.length).body(body);
+    }
+
+    /**
+     * Write the body rendered for the current snapshot version as is, with its length and no serialization.
+     * The gzip variant is a different encoding of the same content, so it is tagged with the weak form of the ETag.
+     */
+    private ResponseEntity<byte[]> fromRendered(String ifNoneMatch, String acceptEncoding, EmployeeResponseCache.View view) throws Exception {
+        EmployeeResponseCache.Response response = employeeService.getRenderedResponse(view);
+        if(matches(ifNoneMatch, response.getETag())){
+            return snapshotHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), response.getETag())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        byte[] gzipped = acceptsGzip(acceptEncoding) ? response.getGzipped() : null;
+        byte[] body = Objects.isNull(gzipped) ? response.getBody() : gzipped;
+        ResponseEntity.BodyBuilder builder = snapshotHeaders(ResponseEntity.ok(),
+                Objects.isNull(gzipped) ? response.getETag() : "W/" + response.getETag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if(Objects.nonNull(gzipped)){
+            builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).contentLength(body.length).body(body);
+    }
+
+    private ResponseEntity.BodyBuilder snapshotHeaders(ResponseEntity.BodyBuilder builder, String eTag) {
+        builder.eTag(eTag);
+        if(employeeService.isServingStaleSnapshot()){
+            builder.header(Constants.STALE_HEADER, Boolean.TRUE.toString())
+                    .header(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(employeeService.getSnapshotAgeMillis())))
+                    .header(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+        }
+        return builder;
+    }
+
+    /**
+     * @param ifNoneMatch If-None-Match header, a list of entity tags or *
+     * @param eTag current entity tag
+     * @return true when any listed tag matches, compared weakly as If-None-Match requires
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if(Objects.isNull(ifNoneMatch) || ifNoneMatch.isBlank()){
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if("*".equals(tag) || weak(tag).equals(weak(eTag))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding header
+     * @return true when gzip is listed, or *, without q=0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if(Objects.isNull(acceptEncoding)){
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if(GZIP.equalsIgnoreCase(name) || "*".equals(name)){
+                return parts.length < 2 || !parts[1].trim().matches("[qQ]\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    @FunctionalInterface
+    private interface SnapshotRead<T> {
+        T get(EmployeeSnapshot snapshot) throws Exception;
+    }
 }
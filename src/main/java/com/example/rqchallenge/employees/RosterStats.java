@@ -0,0 +1,136 @@
+/*
+ * Roster stats are the running aggregates of a roster: counts, salary sums and a fixed age by salary histogram.
+ * They are purely additive, so the stats of a patched snapshot are the stats of its base plus those of its delta,
+ * where removed employees count negative. A create or delete costs O(k) for k pending changes, never a roster scan.
+ */
+package com.example.rqchallenge.employees;
+
+import java.util.Arrays;
+
+final class RosterStats {
+
+    static final int AGE_BUCKET_START = 20;
+    static final int AGE_BUCKET_WIDTH = 10;
+    /** below the start, one per width, open ended last, followed by the bucket of non numeric ages */
+    static final int AGE_BUCKETS = 7;
+    static final int UNKNOWN_AGE = AGE_BUCKETS - 1;
+    static final int SALARY_BUCKET_WIDTH = 50_000;
+    /** one per width from 0, negative salaries in the first, open ended last */
+    static final int SALARY_BUCKETS = 10;
+
+    static final RosterStats EMPTY = new RosterStats();
+
+    /** employees per age bucket */
+    private final long[] counts = new long[AGE_BUCKETS];
+    /** employees with salary per age bucket */
+    private final long[] salaried = new long[AGE_BUCKETS];
+    private final long[] salarySums = new long[AGE_BUCKETS];
+    private final long[][] histogram = new long[AGE_BUCKETS][SALARY_BUCKETS];
+
+    private RosterStats() {
+    }
+
+    /**
+     * @param store
+     * @return stats of the whole store, one pass
+     */
+    static RosterStats of(EmployeeStore store) {
+        RosterStats stats = new RosterStats();
+        for (int position = 0; position < store.size(); position++) {
+            stats.add(store, position, 1);
+        }
+        return stats;
+    }
+
+    /**
+     * @param base roster the removed positions belong to
+     * @param removed base positions
+     * @param added
+     * @return stats of the added employees minus those of the removed ones
+     */
+    static RosterStats change(EmployeeStore base, int[] removed, EmployeeStore added) {
+        RosterStats stats = new RosterStats();
+        for (int position : removed) {
+            stats.add(base, position, -1);
+        }
+        for (int position = 0; position < added.size(); position++) {
+            stats.add(added, position, 1);
+        }
+        return stats;
+    }
+
+    /**
+     * @param other
+     * @return new stats holding both
+     */
+    RosterStats plus(RosterStats other) {
+        RosterStats stats = new RosterStats();
+        for (int age = 0; age < AGE_BUCKETS; age++) {
+            stats.counts[age] = counts[age] + other.counts[age];
+            stats.salaried[age] = salaried[age] + other.salaried[age];
+            stats.salarySums[age] = salarySums[age] + other.salarySums[age];
+            for (int salary = 0; salary < SALARY_BUCKETS; salary++) {
+                stats.histogram[age][salary] = histogram[age][salary] + other.histogram[age][salary];
+            }
+        }
+        return stats;
+    }
+
+    long getCount() {
+        return Arrays.stream(counts).sum();
+    }
+
+    long getSalaried() {
+        return Arrays.stream(salaried).sum();
+    }
+
+    long getSalarySum() {
+        return Arrays.stream(salarySums).sum();
+    }
+
+    long getCount(int ageBucket) {
+        return counts[ageBucket];
+    }
+
+    long getSalaried(int ageBucket) {
+        return salaried[ageBucket];
+    }
+
+    long getSalarySum(int ageBucket) {
+        return salarySums[ageBucket];
+    }
+
+    /**
+     * @param ageBucket
+     * @param salaryBucket
+     * @return employees of the age bucket earning within the salary bucket
+     */
+    long getHistogram(int ageBucket, int salaryBucket) {
+        return histogram[ageBucket][salaryBucket];
+    }
+
+    static int ageBucket(int age) {
+        if (age == Integer.MIN_VALUE) {
+            return UNKNOWN_AGE;
+        }
+        if (age < AGE_BUCKET_START) {
+            return 0;
+        }
+        return (int) Math.min(1 + ((long) age - AGE_BUCKET_START) / AGE_BUCKET_WIDTH, UNKNOWN_AGE - 1);
+    }
+
+    static int salaryBucket(int salary) {
+        return salary < 0 ? 0 : Math.min(salary / SALARY_BUCKET_WIDTH, SALARY_BUCKETS - 1);
+    }
+
+    private void add(EmployeeStore store, int position, int sign) {
+        int age = ageBucket(store.ageOrMinAt(position));
+        counts[age] += sign;
+        int salary = store.salaryOrMinAt(position);
+        if (salary != Integer.MIN_VALUE) {
+            salaried[age] += sign;
+            salarySums[age] += (long) sign * salary;
+            histogram[age][salaryBucket(salary)] += sign;
+        }
+    }
+}
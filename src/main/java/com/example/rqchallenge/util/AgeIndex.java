@@ -0,0 +1,103 @@
+/*
+ * Age index keeps roster positions ordered by age, youngest first, in primitive arrays.
+ * Ages arrive as text, they are parsed once when the index is built with the employee snapshot,
+ * so an age range is found by binary search in O(log n). Employees without a numeric age are left out.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.employees.EmployeeStore;
+
+import java.util.Arrays;
+
+public final class AgeIndex {
+
+    private final int[] ages;
+    private final int[] positions;
+
+    private AgeIndex(int[] ages, int[] positions) {
+        this.ages = ages;
+        this.positions = positions;
+    }
+
+    /**
+     * Build index over the roster, employees of equal age keep their roster order
+     * @param store
+     * @param parallel pool the sort runs on for large rosters
+     * @return age index
+     */
+    public static AgeIndex of(EmployeeStore store, ParallelSearch parallel) {
+        int size = store.size();
+        // age in the high half, position in the low half: one primitive sort, no boxing
+        long[] keys = new long[size];
+        int count = 0;
+        for (int position = 0; position < size; position++) {
+            int age = store.ageOrMinAt(position);
+            if (age != Integer.MIN_VALUE) keys[count++] = ((long) age << 32) | position;
+        }
+        long[] sorted = Arrays.copyOf(keys, count);
+        if (parallel.isParallel(count)) {
+            // run in the search pool, so the parallel sort forks there instead of the common pool
+            parallel.run(count, () -> {
+                Arrays.parallelSort(sorted);
+                return sorted;
+            });
+        } else {
+            Arrays.sort(sorted);
+        }
+
+        int[] ages = new int[count];
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            ages[i] = (int) (sorted[i] >> 32);
+            positions[i] = (int) sorted[i];
+        }
+        return new AgeIndex(ages, positions);
+    }
+
+    public int size() {
+        return ages.length;
+    }
+
+    /**
+     * @param rank 0 based, 0 is the youngest
+     * @return age at given rank
+     */
+    public int ageAt(int rank) {
+        return ages[rank];
+    }
+
+    /**
+     * @param rank 0 based, 0 is the youngest
+     * @return roster position of the employee at given rank
+     */
+    public int positionAt(int rank) {
+        return positions[rank];
+    }
+
+    /**
+     * @param min lowest age, inclusive
+     * @param max highest age, inclusive
+     * @return first rank in range and the rank after the last one, equal when none is in range
+     */
+    public int[] rankRange(int min, int max) {
+        if (min > max) {
+            return new int[]{0, 0};
+        }
+        int from = firstRankAtLeast(min);
+        return new int[]{from, max == Integer.MAX_VALUE ? ages.length : Math.max(from, firstRankAtLeast(max + 1))};
+    }
+
+    private int firstRankAtLeast(int age) {
+        int low = 0;
+        int high = ages.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ages[middle] < age) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Bounded pipeline fans a list of items out to asynchronous calls, with at most a given number of calls in flight.
+ * A finished call starts the next item, results come back in item order.
+ */
+package com.example.rqchallenge.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+public final class BoundedPipeline<T, R> {
+
+    private final List<T> items;
+    private final Function<T, CompletableFuture<R>> call;
+    private final BiFunction<T, Throwable, R> onError;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicReferenceArray<R> results;
+    private final CompletableFuture<List<R>> done = new CompletableFuture<>();
+
+    private BoundedPipeline(List<T> items, Function<T, CompletableFuture<R>> call, BiFunction<T, Throwable, R> onError) {
+        this.items = items;
+        this.call = call;
+        this.onError = onError;
+        this.results = new AtomicReferenceArray<>(items.size());
+    }
+
+    /**
+     * @param items
+     * @param concurrency maximum calls in flight
+     * @param call starts the call for one item
+     * @param onError result of an item whose call failed
+     * @return future of one result per item, in item order
+     */
+    public static <T, R> CompletableFuture<List<R>> run(List<T> items, int concurrency, Function<T, CompletableFuture<R>> call,
+                                                        BiFunction<T, Throwable, R> onError) {
+        BoundedPipeline<T, R> pipeline = new BoundedPipeline<>(items, call, onError);
+        if (items.isEmpty()) {
+            pipeline.done.complete(List.of());
+        }
+        for (int lane = 0; lane < Math.min(Math.max(concurrency, 1), items.size()); lane++) {
+            pipeline.advance();
+        }
+        return pipeline.done;
+    }
+
+    /**
+     * Start items until one is still in flight, calls completing right away are handled in this loop, not by recursion
+     */
+    private void advance() {
+        int index;
+        while ((index = next.getAndIncrement()) < items.size()) {
+            CompletableFuture<R> future;
+            try {
+                future = call.apply(items.get(index));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            if (!future.isDone()) {
+                int inFlight = index;
+                future.whenComplete((result, e) -> {
+                    complete(inFlight, result, e);
+                    advance();
+                });
+                return;
+            }
+            R result = null;
+            Throwable failure = null;
+            try {
+                result = future.join();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            complete(index, result, failure);
+        }
+    }
+
+    private void complete(int index, R result, Throwable failure) {
+        if (Objects.nonNull(failure)) {
+            Throwable cause = failure instanceof CompletionException && Objects.nonNull(failure.getCause()) ? failure.getCause() : failure;
+            result = onError.apply(items.get(index), cause);
+        }
+        results.set(index, result);
+        if (completed.incrementAndGet() == items.size()) {
+            Object[] ordered = new Object[items.size()];
+            Arrays.setAll(ordered, results::get);
+            @SuppressWarnings("unchecked")
+            List<R> list = (List<R>) Arrays.asList(ordered);
+            done.complete(list);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Circuit breaker guards upstream calls. It opens when the failure rate or slow call rate of the recent calls
+ * crosses the threshold, then fails fast until the wait is over and a few trial calls are let through (half-open).
+ * Trial calls decide whether it closes again or opens for another wait.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int minimumCalls;
+    private final long openWaitNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    // sliding window of the latest calls
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int recorded;
+    private int failedCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenDone;
+    private int halfOpenFailed;
+    private int halfOpenSlow;
+
+    /**
+     * @param enabled when disabled every call is permitted
+     * @param failureRateThreshold failure percentage which opens the circuit
+     * @param slowCallRateThreshold slow call percentage which opens the circuit
+     * @param slowCallDurationMillis calls taking at least this long are slow
+     * @param windowSize number of latest calls the rates are computed on
+     * @param minimumCalls calls needed in the window before rates are evaluated
+     * @param openWaitMillis time the circuit stays open before trial calls are let through
+     * @param halfOpenCalls number of trial calls in half-open state
+     * @param clock nano time source
+     */
+    public CircuitBreaker(boolean enabled, double failureRateThreshold, double slowCallRateThreshold, long slowCallDurationMillis,
+                          int windowSize, int minimumCalls, long openWaitMillis, int halfOpenCalls, LongSupplier clock) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.openWaitNanos = TimeUnit.MILLISECONDS.toNanos(openWaitMillis);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+        this.failed = new boolean[Math.max(1, windowSize)];
+        this.slow = new boolean[Math.max(1, windowSize)];
+    }
+
+    public static CircuitBreaker of(CommonConfig config) {
+        return new CircuitBreaker(config.isCircuitBreakerEnabled(), config.getCircuitBreakerFailureRateThreshold(),
+                config.getCircuitBreakerSlowCallRateThreshold(), config.getCircuitBreakerSlowCallDurationMillis(),
+                config.getCircuitBreakerWindowSize(), config.getCircuitBreakerMinimumCalls(),
+                config.getCircuitBreakerOpenWaitMillis(), config.getCircuitBreakerHalfOpenCalls(), System::nanoTime);
+    }
+
+    /**
+     * Every permitted call has to be followed by {@link #onResult(boolean, long)} or {@link #onIgnored()}
+     * @return true in case the call may go to upstream
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!enabled) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openWaitNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Record outcome of a permitted call
+     * @param failure
+     * @param durationNanos
+     */
+    public synchronized void onResult(boolean failure, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        boolean slowCall = durationNanos >= slowCallDurationNanos;
+        switch (state) {
+            case HALF_OPEN:
+                halfOpenDone++;
+                if (failure) halfOpenFailed++;
+                if (slowCall) halfOpenSlow++;
+                if (halfOpenDone >= halfOpenCalls) {
+                    transitionTo(exceeds(halfOpenFailed, halfOpenSlow, halfOpenDone) ? State.OPEN : State.CLOSED);
+                }
+                break;
+            case CLOSED:
+                if (recorded == failed.length) {
+                    if (failed[next]) failedCount--;
+                    if (slow[next]) slowCount--;
+                } else {
+                    recorded++;
+                }
+                failed[next] = failure;
+                slow[next] = slowCall;
+                if (failure) failedCount++;
+                if (slowCall) slowCount++;
+                next = (next + 1) % failed.length;
+                if (recorded >= minimumCalls && exceeds(failedCount, slowCount, recorded)) {
+                    transitionTo(State.OPEN);
+                }
+                break;
+            default:
+                // outcome of a call started before the circuit opened
+                break;
+        }
+    }
+
+    /**
+     * Give back the permission of a call which was cancelled, its outcome says nothing about upstream
+     */
+    public synchronized void onIgnored() {
+        if (enabled && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return state along with the rates of the current window
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("calls", recorded);
+        stats.put("failureRate", recorded == 0 ? 0 : 100.0 * failedCount / recorded);
+        stats.put("slowCallRate", recorded == 0 ? 0 : 100.0 * slowCount / recorded);
+        return stats;
+    }
+
+    private boolean exceeds(int failures, int slowCalls, int calls) {
+        return 100.0 * failures / calls >= failureRateThreshold || 100.0 * slowCalls / calls >= slowCallRateThreshold;
+    }
+
+    private void transitionTo(State target) {
+        log.info("Circuit breaker state changed from {} to {}", state, target);
+        state = target;
+        switch (target) {
+            case OPEN:
+                openedAt = clock.getAsLong();
+                break;
+            case HALF_OPEN:
+                halfOpenPermits = halfOpenCalls;
+                halfOpenDone = 0;
+                halfOpenFailed = 0;
+                halfOpenSlow = 0;
+                break;
+            default:
+                recorded = 0;
+                next = 0;
+                failedCount = 0;
+                slowCount = 0;
+                break;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/*
+ * Circuit open exception is thrown instead of calling upstream while the circuit breaker is open
+ */
+package com.example.rqchallenge.util;
+
+public class CircuitOpenException extends Exception {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -1,32 +1,157 @@
 /*
  * common API client is REST okhttp client. which supports GET, POST, PUT, DELETE
+ * GETs are optionally hedged: a slow call gets a second identical one and the first answer wins, see HedgePolicy.
  */
 package com.example.rqchallenge.util;
 
+import com.example.rqchallenge.config.CommonConfig;
 import com.example.rqchallenge.config.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @Data
 @Slf4j
-public class CommonAPIClient {
+public class CommonAPIClient implements DisposableBean {
+
+    private static final String IO_ERROR = "IO_ERROR";
+
+    // the by-id reads go through this reader, it is the only one whose GETs are hedged
+    private static final ResponseReader<String> STRING = ResponseReader.stateless(body -> new String(body.readAllBytes(), StandardCharsets.UTF_8));
 
     OkHttpClient client;
 
+    OkHttpInterceptor interceptor;
+
+    CircuitBreaker circuitBreaker;
+
+    SingleFlight<List<Object>, Optional<?>> singleFlight;
+
+    ConditionalCache conditionalCache;
+
+    HedgePolicy hedgePolicy;
+
+    MeterRegistry registry;
+
+    // meters are looked up once per tag set, not built and registered again on every call
+    private final Map<List<String>, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Map<List<String>, DistributionSummary> responseSizes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+
+    /**
+     * @param config
+     * @param registry upstream calls, retries, hedges and coalesced calls are measured in
+     */
     @Autowired
-    public CommonAPIClient() {
-        this.client = new OkHttpClient.Builder().addInterceptor(new OkHttpInterceptor()).build();
+    public CommonAPIClient(CommonConfig config, MeterRegistry registry) {
+        this.registry = registry;
+        this.singleFlight = config.isCoalescingEnabled() ? new SingleFlight<>(this::onCoalesced) : null;
+        this.conditionalCache = ConditionalCache.of(config);
+        this.hedgePolicy = HedgePolicy.of(config, registry);
+        this.interceptor = new OkHttpInterceptor(RetryPolicy.of(config), registry);
+        this.circuitBreaker = CircuitBreaker.of(config);
+        // async calls and their response readers run on virtual threads in virtual thread mode
+        Dispatcher dispatcher = config.isVirtualThreadsEnabled() ? new Dispatcher(VirtualThreads.newExecutor("okhttp-virtual-")) : new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .callTimeout(config.getCallTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .protocols(config.isHttp2Enabled() ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1))
+                .addInterceptor(interceptor);
+        if(!config.isCompressionEnabled()){
+            // okhttp asks for gzip transparently, unless the request states an encoding itself
+            builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder().header("Accept-Encoding", "identity").build()));
+        }
+        this.client = builder.build();
+
+        Gauge.builder("upstream.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .register(registry);
+        Gauge.builder("upstream.dispatcher.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .register(registry);
+        Gauge.builder("upstream.dispatcher.running", dispatcher, Dispatcher::runningCallsCount)
+                .register(registry);
+    }
+
+    /**
+     * Release the threads and connections of the client with the application context, calls in flight are finished
+     * and calls enqueued from now on fail
+     */
+    @Override
+    public void destroy() {
+        interceptor.close();
+        if(Objects.nonNull(hedgePolicy)) hedgePolicy.close();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * @return connection pool and dispatcher usage, along with retries per endpoint
+     */
+    public Map<String, Object> getClientStats() {
+        ConnectionPool pool = client.connectionPool();
+        Dispatcher dispatcher = client.dispatcher();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", pool.connectionCount());
+        stats.put("idleConnections", pool.idleConnectionCount());
+        stats.put("activeConnections", pool.connectionCount() - pool.idleConnectionCount());
+        stats.put("queuedCalls", dispatcher.queuedCallsCount());
+        stats.put("runningCalls", dispatcher.runningCallsCount());
+        stats.put("maxRequests", dispatcher.getMaxRequests());
+        stats.put("maxRequestsPerHost", dispatcher.getMaxRequestsPerHost());
+        stats.put("retries", interceptor.getRetryCounts());
+        stats.put("circuitBreaker", circuitBreaker.getStats());
+        stats.put("coalescedCalls", Objects.isNull(singleFlight) ? 0 : singleFlight.getCoalescedCount());
+        stats.put("conditionalEntries", Objects.isNull(conditionalCache) ? 0 : conditionalCache.size());
+        stats.put("notModified", Objects.isNull(conditionalCache) ? 0 : conditionalCache.getNotModifiedCount());
+        stats.put("hedges", Objects.isNull(hedgePolicy) ? Collections.emptyMap() : hedgePolicy.getStats());
+        return stats;
+    }
+
+    /**
+     * Change dispatcher limits of the running client, applies to asynchronous calls
+     * @param maxRequests
+     * @param maxRequestsPerHost
+     */
+    public void setDispatcherLimits(Integer maxRequests, Integer maxRequestsPerHost) {
+        if(Objects.nonNull(maxRequests)) client.dispatcher().setMaxRequests(maxRequests);
+        if(Objects.nonNull(maxRequestsPerHost)) client.dispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
     }
 
     /**
@@ -37,7 +162,276 @@ public class CommonAPIClient {
      * @return Optional response, received from dummy API
      */
     public Optional<String> getResponseFromDummyAPI(final String requestUrl, final String method, final Optional<String> requestBody) throws Exception {
-        String responseData = null;
+        return getResponseFromDummyAPI(requestUrl, method, requestBody, STRING);
+    }
+
+    /**
+     * Response body is handed over to the reader as a byte stream, it is never buffered as a whole.
+     * Concurrent identical GETs share one upstream call and its result, so the reader must not have side effects
+     * other than reading, unless it is a distinct instance per call.
+     * A GET answered with validators before is revalidated, on 304 the value read last time is returned as is.
+     * A GET read by a stateless reader may be hedged, it waits for the first of its calls to answer and
+     * the shared call of coalesced GETs is hedged once. Readers with side effects, e.g. streaming, are never hedged.
+     * @param requestUrl
+     * @param method
+     * @param requestBody
+     * @param reader reads the response body stream
+     * @return Optional response, as read by the reader
+     */
+    public <T> Optional<T> getResponseFromDummyAPI(final String requestUrl, final String method, final Optional<String> requestBody,
+                                                   final ResponseReader<T> reader) throws Exception {
+        Request request = buildRequest(requestUrl, method, requestBody);
+
+        //if request object is still null
+        if(Objects.isNull(request)){
+            log.error("Unable to prepare request URL:{}, Method:{}", requestUrl, method);
+            return Optional.empty();
+        }
+
+        if(isCoalesced(request)){
+            return cast(singleFlight.execute(flightKey(request, reader), () -> execute(request, reader)));
+        }
+        return execute(request, reader);
+    }
+
+    private <T> Optional<T> execute(final Request request, final ResponseReader<T> reader) throws Exception {
+        if(isHedged(request, reader)){
+            return await(enqueueHedged(request, reader));
+        }
+        T responseData = null;
+        String requestUrl = request.url().toString();
+        String method = request.method();
+        if(!circuitBreaker.tryAcquirePermission()){
+            throw circuitOpen(requestUrl, method);
+        }
+        ConditionalCache.Entry cached = lookup(request, reader);
+        long start = System.nanoTime();
+        boolean failure = true;
+        String status = IO_ERROR;
+        CountingInputStream body = null;
+        try (Response response = this.client.newCall(Objects.isNull(cached) ? request : cached.conditional(request)).execute()) {
+            log.debug("Received response from dummyAPI URL:{} , Response:{} ", requestUrl, response.code());
+            status = String.valueOf(response.code());
+            if(isNotModified(cached, response)){
+                responseData = cast(conditionalCache.notModified(cached));
+            }else{
+                body = new CountingInputStream(response.body().byteStream());
+                responseData = reader.read(body);
+                remember(request, reader, response, responseData);
+            }
+            failure = isFailure(response);
+        } catch (IOException e) {
+            log.error(String.format("Error occurred while retrieving data from URL:%s, Method:%s", requestUrl, method), e);
+            throw new Exception(String.format("Unable to process request URL %s, Method:%s", requestUrl, method));
+        } finally {
+            circuitBreaker.onResult(failure, System.nanoTime() - start);
+            record(request, status, System.nanoTime() - start, body);
+        }
+        return Optional.ofNullable(responseData);
+    }
+
+    /**
+     * Non-blocking variant, the call is enqueued on the okhttp dispatcher and no thread waits for the response
+     * @param requestUrl
+     * @param method
+     * @param requestBody
+     * @return future of Optional response, received from dummy API
+     */
+    public CompletableFuture<Optional<String>> getResponseFromDummyAPIAsync(final String requestUrl, final String method,
+                                                                         final Optional<String> requestBody) {
+        return getResponseFromDummyAPIAsync(requestUrl, method, requestBody, STRING);
+    }
+
+    /**
+     * Non-blocking variant, the reader runs on the okhttp dispatcher thread once the response arrives.
+     * Cancelling the returned future cancels the call, unless it is a GET shared with other callers.
+     * @param requestUrl
+     * @param method
+     * @param requestBody
+     * @param reader reads the response body stream
+     * @return future of Optional response, as read by the reader
+     */
+    public <T> CompletableFuture<Optional<T>> getResponseFromDummyAPIAsync(final String requestUrl, final String method,
+                                                                        final Optional<String> requestBody, final ResponseReader<T> reader) {
+        Request request = buildRequest(requestUrl, method, requestBody);
+        if(Objects.isNull(request)){
+            log.error("Unable to prepare request URL:{}, Method:{}", requestUrl, method);
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        if(isCoalesced(request)){
+            return singleFlight.executeAsync(flightKey(request, reader), () -> cast(send(request, reader))).thenApply(CommonAPIClient::cast);
+        }
+        return send(request, reader);
+    }
+
+    private <T> CompletableFuture<Optional<T>> send(final Request request, final ResponseReader<T> reader) {
+        return isHedged(request, reader) ? enqueueHedged(request, reader) : enqueue(request, reader);
+    }
+
+    /**
+     * Enqueue the call and, if it has not answered within the hedge delay of its endpoint, a second identical one.
+     * The first response wins and the other call is cancelled. A failure is returned only once both calls failed,
+     * or at once when the first call fails before the hedge is sent.
+     */
+    private <T> CompletableFuture<Optional<T>> enqueueHedged(final Request request, final ResponseReader<T> reader) {
+        hedgePolicy.deposit();
+        long delay = hedgePolicy.delayMillis(request);
+        long start = System.nanoTime();
+        CompletableFuture<Optional<T>> primary = enqueue(request, reader);
+        if(delay < 0){
+            return primary;
+        }
+        CompletableFuture<Optional<T>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<Optional<T>>> hedge = new AtomicReference<>();
+        // the winner is settled before the result completes, so it is counted by the time the caller sees the response
+        AtomicBoolean answered = new AtomicBoolean();
+        primary.whenComplete((response, e) -> {
+            CompletableFuture<Optional<T>> second = hedge.get();
+            if(Objects.isNull(e)){
+                if(answered.compareAndSet(false, true)) result.complete(response);
+            }else if(Objects.isNull(second) || second.isCompletedExceptionally()){
+                result.completeExceptionally(e);
+            }
+        });
+        ScheduledFuture<?> timer = hedgePolicy.schedule(() -> {
+            if(result.isDone() || !hedgePolicy.tryAcquire(request)){
+                return;
+            }
+            log.debug("Hedging request URL:{} after {} ms", request.url(), delay);
+            CompletableFuture<Optional<T>> second = enqueue(request, reader);
+            hedge.set(second);
+            second.whenComplete((response, e) -> {
+                if(Objects.isNull(e)){
+                    if(answered.compareAndSet(false, true)){
+                        hedgePolicy.onWon(request);
+                        // the first call is cancelled, its latency so far still belongs to the tail
+                        hedgePolicy.record(request, System.nanoTime() - start);
+                        result.complete(response);
+                    }
+                }else if(primary.isCompletedExceptionally()){
+                    result.completeExceptionally(e);
+                }
+            });
+            if(result.isDone()) second.cancel(true);
+        }, delay);
+        result.whenComplete((response, e) -> {
+            // cancels the losing call, or both when the caller cancelled
+            timer.cancel(false);
+            primary.cancel(true);
+            CompletableFuture<Optional<T>> second = hedge.get();
+            if(Objects.nonNull(second)) second.cancel(true);
+        });
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private <T> CompletableFuture<Optional<T>> enqueue(final Request request, final ResponseReader<T> reader) {
+        String requestUrl = request.url().toString();
+        String method = request.method();
+        if(!circuitBreaker.tryAcquirePermission()){
+            return CompletableFuture.failedFuture(circuitOpen(requestUrl, method));
+        }
+        ConditionalCache.Entry cached = lookup(request, reader);
+        AsyncCall<T> call = new AsyncCall<>(request, Objects.isNull(cached) ? request : cached.conditional(request), cached, reader);
+        call.send(0);
+        return call.future;
+    }
+
+    /**
+     * @return true while calls to upstream fail fast
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Record upstream call latency tagged by method, URI template and status, along with bytes read from the body
+     */
+    private void record(Request request, String status, long durationNanos, CountingInputStream body) {
+        String method = request.method();
+        String uri = OkHttpInterceptor.uri(request);
+        requestTimers.computeIfAbsent(Arrays.asList(method, uri, status), tags -> Timer.builder("upstream.requests")
+                .description("Upstream calls, including retries and reading the response")
+                .tags("method", tags.get(0), "uri", tags.get(1), "status", tags.get(2))
+                .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if(Objects.nonNull(body)){
+            responseSizes.computeIfAbsent(Arrays.asList(method, uri), tags -> DistributionSummary.builder("upstream.response.size")
+                    .baseUnit("bytes")
+                    .tags("method", tags.get(0), "uri", tags.get(1))
+                    .register(registry))
+                    .record(body.getCount());
+        }
+    }
+
+    /**
+     * Count a caller sharing a call in flight, tagged by URI template like upstream.requests
+     */
+    private void onCoalesced(List<Object> key) {
+        String uri = OkHttpInterceptor.uri((HttpUrl) key.get(0));
+        coalescedCounters.computeIfAbsent(uri, template -> Counter.builder("upstream.coalesced")
+                .description("Upstream GETs which shared a call in flight instead of making their own")
+                .tags("method", "GET", "uri", template)
+                .register(registry))
+                .increment();
+    }
+
+    /**
+     * @return remembered response to revalidate, null when the request is sent as is
+     */
+    private ConditionalCache.Entry lookup(Request request, ResponseReader<?> reader) {
+        return Objects.isNull(conditionalCache) ? null : conditionalCache.lookup(request, reader);
+    }
+
+    private void remember(Request request, ResponseReader<?> reader, Response response, Object value) {
+        if(Objects.nonNull(conditionalCache)) conditionalCache.store(request, reader, response, value);
+    }
+
+    private static boolean isNotModified(ConditionalCache.Entry cached, Response response) {
+        return Objects.nonNull(cached) && response.code() == ConditionalCache.NOT_MODIFIED;
+    }
+
+    private boolean isHedged(Request request, ResponseReader<?> reader) {
+        return Objects.nonNull(hedgePolicy) && hedgePolicy.isHedged(request) && reader.isStateless();
+    }
+
+    private boolean isCoalesced(Request request) {
+        return Objects.nonNull(singleFlight) && "GET".equals(request.method());
+    }
+
+    /**
+     * Calls are identical when they GET the same URL and read the response the same way
+     */
+    private static List<Object> flightKey(Request request, ResponseReader<?> reader) {
+        return Arrays.asList(request.url(), reader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    private static boolean isFailure(Response response) {
+        return response.code() >= 500 || response.code() == 429;
+    }
+
+    private CircuitOpenException circuitOpen(final String requestUrl, final String method) {
+        log.warn("Circuit breaker is open, failing fast URL:{}, Method:{}", requestUrl, method);
+        return new CircuitOpenException(String.format("Upstream unavailable, circuit breaker is open URL %s, Method:%s", requestUrl, method));
+    }
+
+    private Request buildRequest(final String requestUrl, final String method, final Optional<String> requestBody) {
         Request request = null;
         log.debug("Requesting data from dummyAPI URL:{}, Method:{}", requestUrl, method);
 
@@ -62,20 +456,123 @@ public class CommonAPIClient {
                 request = null;
                 break;
         }
+        return request;
+    }
 
-        //if request object is still null
-        if(Objects.isNull(request)){
-            log.error("Unable to prepare request URL:{}, Method:{}", requestUrl, method);
-            return Optional.empty();
+    /**
+     * Asynchronous call along with its retries. A retryable response is closed and the next attempt is enqueued
+     * after the backoff delay by the retry timer, no dispatcher thread waits for it.
+     */
+    private final class AsyncCall<T> implements Callback {
+        private final Request request;
+        private final Request sent;
+        private final ConditionalCache.Entry cached;
+        private final ResponseReader<T> reader;
+        private final String requestUrl;
+        private final String method;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+        private final AtomicReference<Call> current = new AtomicReference<>();
+        private volatile int retryCount;
+
+        AsyncCall(Request request, Request sent, ConditionalCache.Entry cached, ResponseReader<T> reader) {
+            this.request = request;
+            this.sent = sent;
+            this.cached = cached;
+            this.reader = reader;
+            this.requestUrl = request.url().toString();
+            this.method = request.method();
+            future.whenComplete((response, e) -> {
+                Call call = current.get();
+                if(future.isCancelled() && Objects.nonNull(call)) call.cancel();
+            });
         }
 
-        try (Response response = this.client.newCall(request).execute()) {
-             responseData = response.body().string();
-            log.debug("Received response from dummyAPI URL:{} , Response:{} ", requestUrl, response.code());
-        } catch (IOException e) {
-            log.error(String.format("Error occurred while retrieving data from URL:%s, Method:%s", requestUrl, method), e);
-            throw new Exception(String.format("Unable to process request URL %s, Method:%s", requestUrl, method));
+        void send(int attempt) {
+            retryCount = attempt;
+            Call call = client.newCall(OkHttpInterceptor.attempt(sent, attempt));
+            current.set(call);
+            // cancelled while the retry was waiting, the new call is cancelled before it goes out
+            if(future.isCancelled()) call.cancel();
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onFailure(@NotNull Call call, @NotNull IOException e) {
+            if(call.isCanceled()){
+                circuitBreaker.onIgnored();
+                log.debug("Call canceled URL:{}, Method:{}", requestUrl, method);
+            }else{
+                circuitBreaker.onResult(true, System.nanoTime() - start);
+                record(request, IO_ERROR, System.nanoTime() - start, null);
+                log.error(String.format("Error occurred while retrieving data from URL:%s, Method:%s", requestUrl, method), e);
+            }
+            future.completeExceptionally(new Exception(String.format("Unable to process request URL %s, Method:%s", requestUrl, method)));
+        }
+
+        @Override
+        public void onResponse(@NotNull Call call, @NotNull Response response) {
+            Optional<T> responseData;
+            CountingInputStream body = null;
+            try (response) {
+                log.debug("Received response from dummyAPI URL:{} , Response:{} ", requestUrl, response.code());
+                long delay = interceptor.retryDelay(sent, response, retryCount);
+                if(delay >= 0){
+                    int next = retryCount + 1;
+                    interceptor.schedule(() -> send(next), delay);
+                    return;
+                }
+                if(isNotModified(cached, response)){
+                    responseData = Optional.ofNullable(cast(conditionalCache.notModified(cached)));
+                }else{
+                    body = new CountingInputStream(response.body().byteStream());
+                    responseData = Optional.ofNullable(reader.read(body));
+                    remember(request, reader, response, responseData.orElse(null));
+                }
+            } catch (Exception e) {
+                onFailure(call, e instanceof IOException ? (IOException) e : new IOException(e));
+                return;
+            }
+            circuitBreaker.onResult(isFailure(response), System.nanoTime() - start);
+            record(request, String.valueOf(response.code()), System.nanoTime() - start, body);
+            if(isHedged(request, reader) && !isFailure(response)) hedgePolicy.record(request, System.nanoTime() - start);
+            future.complete(responseData);
+        }
+    }
+
+    /**
+     * Counts bytes read from the response body, without buffering it
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
         }
-        return Optional.of(responseData);
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Common API client endpoint exposes connection pool and dispatcher usage over actuator (/actuator/upstream)
+ */
+package com.example.rqchallenge.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "upstream")
+public class CommonAPIClientEndpoint {
+
+    @Autowired
+    CommonAPIClient client;
+
+    @ReadOperation
+    public Map<String, Object> upstream() {
+        return client.getClientStats();
+    }
+
+    /**
+     * Resize dispatcher limits without restart, e.g. POST /actuator/upstream {"maxRequestsPerHost": 20}
+     */
+    @WriteOperation
+    public Map<String, Object> resize(@Nullable Integer maxRequests, @Nullable Integer maxRequestsPerHost) {
+        client.setDispatcherLimits(maxRequests, maxRequestsPerHost);
+        return client.getClientStats();
+    }
+}
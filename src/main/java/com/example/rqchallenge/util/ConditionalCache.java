@@ -0,0 +1,126 @@
+/*
+ * Conditional cache remembers the validators (ETag, Last-Modified) of upstream GET responses along with the value read from the body.
+ * The next GET of the URL with the same reader is sent conditionally, and a 304 reuses the value, nothing is transferred or parsed again.
+ * One entry is kept per URL, the least recently used URL is dropped first.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConditionalCache {
+
+    public static final int NOT_MODIFIED = 304;
+
+    private final int maxEntries;
+    private final Map<HttpUrl, Entry> entries;
+    private final AtomicLong notModified = new AtomicLong();
+
+    public ConditionalCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HttpUrl, Entry> eldest) {
+                return size() > ConditionalCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param config
+     * @return conditional cache, null when conditional requests are disabled
+     */
+    public static ConditionalCache of(CommonConfig config) {
+        return config.isConditionalEnabled() && config.getConditionalMaxEntries() > 0
+                ? new ConditionalCache(config.getConditionalMaxEntries()) : null;
+    }
+
+    /**
+     * @param request
+     * @param reader
+     * @return entry to revalidate, null when the GET was not seen before with the same reader
+     */
+    public Entry lookup(Request request, ResponseReader<?> reader) {
+        if (!"GET".equals(request.method())) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(request.url());
+        }
+        return Objects.nonNull(entry) && entry.reader == reader ? entry : null;
+    }
+
+    /**
+     * Remember validators of a successful GET along with the value read, forget the URL when the response carries none
+     * @param request
+     * @param reader
+     * @param response
+     * @param value
+     */
+    public void store(Request request, ResponseReader<?> reader, Response response, Object value) {
+        if (!"GET".equals(request.method()) || !response.isSuccessful()) {
+            return;
+        }
+        String eTag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        synchronized (entries) {
+            if (Objects.isNull(eTag) && Objects.isNull(lastModified)) {
+                entries.remove(request.url());
+            } else {
+                entries.put(request.url(), new Entry(eTag, lastModified, reader, value));
+            }
+        }
+    }
+
+    /**
+     * @param entry entry the conditional request was sent for
+     * @return value to reuse for the 304 response
+     */
+    public Object notModified(Entry entry) {
+        notModified.incrementAndGet();
+        return entry.value;
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public static final class Entry {
+        private final String eTag;
+        private final String lastModified;
+        private final ResponseReader<?> reader;
+        private final Object value;
+
+        private Entry(String eTag, String lastModified, ResponseReader<?> reader, Object value) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.reader = reader;
+            this.value = value;
+        }
+
+        /**
+         * @param request
+         * @return request made conditional on the remembered validators
+         */
+        public Request conditional(Request request) {
+            Request.Builder builder = request.newBuilder();
+            if (Objects.nonNull(eTag)) builder.header("If-None-Match", eTag);
+            if (Objects.nonNull(lastModified)) builder.header("If-Modified-Since", lastModified);
+            return builder.build();
+        }
+    }
+}
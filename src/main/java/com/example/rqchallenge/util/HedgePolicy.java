@@ -0,0 +1,193 @@
+/*
+ * Hedge policy decides when an idempotent upstream GET gets a second, identical request.
+ * The hedge is sent once the first call has been outstanding for longer than a percentile of recent latencies of its endpoint,
+ * so only the slow tail is hedged. Hedges are bounded by the hedge budget, so they never exceed a fraction of the traffic.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Request;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HedgePolicy {
+
+    /** latencies kept per endpoint */
+    static final int WINDOW_SIZE = 256;
+    /** samples recorded between two recomputations of the delay */
+    static final int RECOMPUTE_EVERY = 16;
+
+    private final double percentile;
+    private final long minDelayMillis;
+    private final int minSamples;
+    private final RequestBudget budget;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final MeterRegistry registry;
+    private final Map<List<String>, Counter> counters = new ConcurrentHashMap<>();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong won = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+
+    /**
+     * @param percentile latency percentile of the endpoint after which a hedge is sent, e.g. 95
+     * @param minDelayMillis lowest hedge delay, keeps fast endpoints from being hedged on noise
+     * @param minSamples latencies an endpoint needs before it is hedged
+     * @param budget hedges allowed per regular request
+     * @param registry hedges are counted in, per URI template and outcome
+     */
+    public HedgePolicy(double percentile, long minDelayMillis, int minSamples, RequestBudget budget, MeterRegistry registry) {
+        this.percentile = percentile;
+        this.registry = registry;
+        this.minDelayMillis = minDelayMillis;
+        this.minSamples = Math.max(minSamples, 1);
+        this.budget = budget;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param config
+     * @param registry
+     * @return hedge policy as configured, null when hedging is disabled
+     */
+    public static HedgePolicy of(CommonConfig config, MeterRegistry registry) {
+        if(!config.isHedgeEnabled()){
+            return null;
+        }
+        return new HedgePolicy(config.getHedgeDelayPercentile(), config.getHedgeMinDelayMillis(), config.getHedgeMinSamples(),
+                new RequestBudget(config.getHedgeBudgetRatio(), config.getHedgeBudgetCapacity()), registry);
+    }
+
+    /**
+     * @param request
+     * @return true for idempotent requests, which are safe to send twice
+     */
+    public boolean isHedged(Request request) {
+        return "GET".equals(request.method());
+    }
+
+    /**
+     * Record a regular request, it adds to the hedge budget
+     */
+    public void deposit() {
+        budget.deposit();
+    }
+
+    /**
+     * @param request
+     * @return delay after which the request is hedged, -1 while its endpoint has too few latencies to tell the tail
+     */
+    public long delayMillis(Request request) {
+        Window window = windows.get(OkHttpInterceptor.endpoint(request));
+        return Objects.isNull(window) ? -1 : window.delayMillis();
+    }
+
+    /**
+     * @param request
+     * @param durationNanos latency of a completed call
+     */
+    public void record(Request request, long durationNanos) {
+        windows.computeIfAbsent(OkHttpInterceptor.endpoint(request), endpoint -> new Window()).record(durationNanos);
+    }
+
+    /**
+     * Schedule the hedge, it runs on the hedge timer thread
+     * @param hedge
+     * @param delayMillis
+     * @return scheduled hedge, cancelled once the first call answers
+     */
+    public ScheduledFuture<?> schedule(Runnable hedge, long delayMillis) {
+        return timer.schedule(hedge, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the hedge timer once its client closes. Hedges not sent yet are dropped, their first call still answers
+     */
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * @param request
+     * @return true in case the hedge fits into the budget, it is counted as sent then
+     */
+    public boolean tryAcquire(Request request) {
+        if(!budget.tryAcquire()){
+            denied.incrementAndGet();
+            count(request, "denied");
+            return false;
+        }
+        sent.incrementAndGet();
+        count(request, "sent");
+        return true;
+    }
+
+    /**
+     * @param request answered by the hedge before the first call
+     */
+    public void onWon(Request request) {
+        won.incrementAndGet();
+        count(request, "won");
+    }
+
+    private void count(Request request, String outcome) {
+        counters.computeIfAbsent(Arrays.asList(OkHttpInterceptor.uri(request), outcome),
+                tags -> registry.counter("upstream.hedges", "uri", tags.get(0), "outcome", tags.get(1)))
+                .increment();
+    }
+
+    /**
+     * @return hedges sent, won and denied by the budget, along with the current delay per endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sent.get());
+        stats.put("won", won.get());
+        stats.put("denied", denied.get());
+        stats.put("budgetTokens", budget.getTokens());
+        Map<String, Long> delays = new LinkedHashMap<>();
+        windows.forEach((endpoint, window) -> delays.put(endpoint, window.delayMillis()));
+        stats.put("delayMillis", delays);
+        return stats;
+    }
+
+    /**
+     * Ring of the latest latencies of one endpoint, the delay is recomputed every few samples instead of on every request
+     */
+    private final class Window {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private long count;
+        private volatile long delayMillis = -1;
+
+        synchronized void record(long durationNanos) {
+            samples[(int) (count++ % WINDOW_SIZE)] = durationNanos;
+            if(count >= minSamples && (count % RECOMPUTE_EVERY == 0 || count == minSamples)){
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW_SIZE));
+                Arrays.sort(sorted);
+                int rank = (int) Math.min(Math.ceil(percentile / 100 * sorted.length), sorted.length) - 1;
+                delayMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(rank, 0)]), minDelayMillis);
+            }
+        }
+
+        long delayMillis() {
+            return delayMillis;
+        }
+    }
+}
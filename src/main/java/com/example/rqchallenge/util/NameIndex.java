@@ -0,0 +1,332 @@
+/*
+ * Name index is a trigram inverted index over normalized employee names.
+ * It is built once per employee snapshot, a search only verifies the roster positions sharing all trigrams of the term.
+ * Normalized names are kept as UTF-8 bytes in one shared string with offsets, one byte per Latin-1 char, so they take
+ * as little room as in the store while a scan still runs on the intrinsic String.indexOf. Postings are flat arrays
+ * of the sorted trigrams, the number of positions of each, and their positions in roster order as varint gaps.
+ * On large rosters names are normalized and candidates verified in parallel, see ParallelSearch.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.employees.EmployeeStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+public final class NameIndex {
+
+    private static final int GRAM = 3;
+    private static final int[] EMPTY = new int[0];
+
+    // UTF-8 bytes of all names, each byte read as one Latin-1 char
+    private final String names;
+    private final int[] nameOffsets;
+    private final int[] grams;
+    private final int[] gramCounts;
+    private final int[] gramOffsets;
+    private final byte[] gaps;
+    private final ParallelSearch parallel;
+
+    private NameIndex(String names, int[] nameOffsets, int[] grams, int[] gramCounts, int[] gramOffsets, byte[] gaps,
+                      ParallelSearch parallel) {
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.grams = grams;
+        this.gramCounts = gramCounts;
+        this.gramOffsets = gramOffsets;
+        this.gaps = gaps;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Build index over the roster
+     * @param store
+     * @param parallel pool names are normalized and matches verified on for large rosters
+     * @return name index
+     */
+    public static NameIndex of(EmployeeStore store, ParallelSearch parallel) {
+        int size = store.size();
+        byte[][] normalized = parallel.fill(new byte[size][], position -> normalize(store.nameAt(position)).getBytes(StandardCharsets.UTF_8));
+        int[] nameOffsets = new int[size + 1];
+        for (int position = 0; position < size; position++) {
+            nameOffsets[position + 1] = nameOffsets[position] + normalized[position].length;
+        }
+        byte[] names = new byte[nameOffsets[size]];
+        for (int position = 0; position < size; position++) {
+            System.arraycopy(normalized[position], 0, names, nameOffsets[position], normalized[position].length);
+        }
+
+        // first pass sizes the postings of every trigram, a trigram repeated within one name counts once
+        Map<Integer, Posting> postings = new HashMap<>();
+        for (int position = 0; position < size; position++) {
+            for (int i = nameOffsets[position]; i + GRAM <= nameOffsets[position + 1]; i++) {
+                Posting posting = postings.computeIfAbsent(gram(names, i), key -> new Posting());
+                if (posting.last != position) {
+                    posting.bytes += varintLength(position - posting.last);
+                    posting.last = position;
+                    posting.count++;
+                }
+            }
+        }
+        int[] grams = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] gramCounts = new int[grams.length];
+        int[] gramOffsets = new int[grams.length + 1];
+        for (int i = 0; i < grams.length; i++) {
+            Posting posting = postings.get(grams[i]);
+            gramCounts[i] = posting.count;
+            gramOffsets[i + 1] = gramOffsets[i] + posting.bytes;
+            posting.next = gramOffsets[i];
+            posting.last = -1;
+        }
+        // second pass writes the gaps between ascending positions, most of them fit in one byte
+        byte[] gaps = new byte[gramOffsets[grams.length]];
+        for (int position = 0; position < size; position++) {
+            for (int i = nameOffsets[position]; i + GRAM <= nameOffsets[position + 1]; i++) {
+                Posting posting = postings.get(gram(names, i));
+                if (posting.last != position) {
+                    posting.next = writeVarint(gaps, posting.next, position - posting.last);
+                    posting.last = position;
+                }
+            }
+        }
+        return new NameIndex(new String(names, StandardCharsets.ISO_8859_1), nameOffsets, grams, gramCounts, gramOffsets, gaps, parallel);
+    }
+
+    /**
+     * @param value
+     * @return value in the form names are indexed
+     */
+    public static String normalize(String value) {
+        return Objects.isNull(value) ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    public int size() {
+        return nameOffsets.length - 1;
+    }
+
+    /**
+     * @param position
+     * @return normalized name at roster position
+     */
+    public String nameAt(int position) {
+        int from = nameOffsets[position];
+        return new String(names.substring(from, nameOffsets[position + 1]).getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find roster positions whose name contains the term, or has a word starting with the term in prefix mode.
+     * Names are compared as UTF-8 bytes, a byte sequence of whole characters only matches at character boundaries.
+     * Candidates of the trigram index are verified one by one, a term too short for the index is found in one scan.
+     * @param term
+     * @param prefix
+     * @return matching roster positions in roster order
+     */
+    public int[] match(String term, boolean prefix) {
+        String normalized = new String(normalize(term).getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        int[] candidates = candidates(normalized);
+        if (Objects.isNull(candidates)) {
+            return scan(normalized, prefix);
+        }
+        if (normalized.length() == GRAM && !prefix) {
+            // a trigram is taken from within one name, so every position listed for it contains the term
+            return candidates;
+        }
+
+        // candidates are distinct and ascending, so matches keep roster order even when verified in parallel chunks
+        char first = normalized.charAt(0);
+        int[] matches = parallel.filter(candidates.length, i -> {
+            int from = nameOffsets[candidates[i]];
+            int to = nameOffsets[candidates[i] + 1];
+            for (int at = from; at + normalized.length() <= to; at++) {
+                if (names.charAt(at) == first && (!prefix || at == from || names.charAt(at - 1) == ' ')
+                        && names.startsWith(normalized, at)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = candidates[matches[i]];
+        }
+        return matches;
+    }
+
+    /**
+     * @param left ascending positions
+     * @param right ascending positions
+     * @return positions present in both, ascending
+     */
+    public static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @param term normalized term
+     * @return positions sharing every trigram of the term, null when term is too short to use the index
+     */
+    private int[] candidates(String term) {
+        if (term.length() < GRAM) {
+            return null;
+        }
+        int[] lists = new int[term.length() - GRAM + 1];
+        for (int i = 0; i < lists.length; i++) {
+            int slot = Arrays.binarySearch(grams, gram(term, i));
+            if (slot < 0) {
+                return EMPTY;
+            }
+            lists[i] = slot;
+        }
+        // start from the rarest trigram, so the candidate set only shrinks
+        int[] rarestFirst = Arrays.stream(lists).boxed()
+                .sorted(Comparator.comparingInt(slot -> gramCounts[slot]))
+                .mapToInt(Integer::intValue).toArray();
+        int[] candidates = positions(rarestFirst[0]);
+        for (int i = 1; i < rarestFirst.length && candidates.length > 0; i++) {
+            candidates = intersect(candidates, rarestFirst[i]);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param slot of the trigram
+     * @return positions of the trigram, decoded from their gaps
+     */
+    private int[] positions(int slot) {
+        int[] positions = new int[gramCounts[slot]];
+        Cursor cursor = new Cursor(slot);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = cursor.next();
+        }
+        return positions;
+    }
+
+    /**
+     * Intersect with the positions of a trigram, decoded while walking them
+     * @param left ascending positions
+     * @param slot of the trigram
+     * @return positions present in both, ascending
+     */
+    private int[] intersect(int[] left, int slot) {
+        int[] result = new int[Math.min(left.length, gramCounts[slot])];
+        int size = 0;
+        Cursor cursor = new Cursor(slot);
+        for (int i = 0; i < left.length && cursor.hasNext(); ) {
+            int position = cursor.next();
+            while (i < left.length && left[i] < position) i++;
+            if (i < left.length && left[i] == position) result[size++] = left[i++];
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Scan all names at once, the search jumps from one occurrence of the term to the next
+     * @param term normalized term
+     * @param prefix
+     * @return matching roster positions in roster order
+     */
+    private int[] scan(String term, boolean prefix) {
+        if (term.isEmpty()) {
+            return parallel.filter(size(), position -> true);
+        }
+        int[] matches = new int[size()];
+        int size = 0;
+        int position = 0;
+        for (int at = names.indexOf(term); at >= 0; at = names.indexOf(term, at + 1)) {
+            while (nameOffsets[position + 1] <= at) {
+                position++;
+            }
+            int end = nameOffsets[position + 1];
+            // an occurrence running over into the next name, or inside a word in prefix mode, does not count
+            if (at + term.length() > end || (prefix && at > nameOffsets[position] && names.charAt(at - 1) != ' ')) {
+                continue;
+            }
+            matches[size++] = position;
+            at = end - 1;
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    /**
+     * @return offset following the written value
+     */
+    private static int writeVarint(byte[] target, int at, int value) {
+        while ((value & ~0x7f) != 0) {
+            target[at++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        target[at++] = (byte) value;
+        return at;
+    }
+
+    private static int gram(byte[] value, int from) {
+        return (value[from] & 0xff) << 16 | (value[from + 1] & 0xff) << 8 | value[from + 2] & 0xff;
+    }
+
+    private static int gram(String value, int from) {
+        return value.charAt(from) << 16 | value.charAt(from + 1) << 8 | value.charAt(from + 2);
+    }
+
+    /**
+     * Walks the positions of one trigram, adding up their gaps
+     */
+    private final class Cursor {
+        private int at;
+        private final int end;
+        private int position = -1;
+
+        Cursor(int slot) {
+            this.at = gramOffsets[slot];
+            this.end = gramOffsets[slot + 1];
+        }
+
+        boolean hasNext() {
+            return at < end;
+        }
+
+        int next() {
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte value = gaps[at++];
+                gap |= (value & 0x7f) << shift;
+                if (value >= 0) {
+                    position += gap;
+                    return position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Positions of one trigram while postings are built
+     */
+    private static final class Posting {
+        private int count;
+        private int bytes;
+        private int last = -1;
+        private int next;
+    }
+}
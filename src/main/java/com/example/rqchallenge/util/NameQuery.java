@@ -0,0 +1,52 @@
+/*
+ * Name query holds the options of an employee name search
+ */
+package com.example.rqchallenge.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+@Getter
+@AllArgsConstructor
+public class NameQuery {
+
+    /** searched text */
+    private final String text;
+    /** match only names having a word starting with the text */
+    private final boolean prefix;
+    /** split text on whitespace, every token has to match */
+    private final boolean allTokens;
+    /** number of matches to skip */
+    private final int offset;
+    /** max number of matches to return, null for all */
+    private final Integer limit;
+    /** ID of the last match of the previous page, matches are then ordered by ID. Null for roster order. */
+    private final Integer after;
+
+    public NameQuery(String text, boolean prefix, boolean allTokens, int offset, Integer limit) {
+        this(text, prefix, allTokens, offset, limit, null);
+    }
+
+    /**
+     * @return terms which have to match the employee name
+     */
+    public List<String> getTerms() {
+        if (allTokens) {
+            String[] tokens = text.trim().split("\\s+");
+            if (tokens.length > 0 && !tokens[0].isEmpty()) {
+                return Arrays.asList(tokens);
+            }
+        }
+        return Collections.singletonList(text);
+    }
+
+    public int getEnd(int total) {
+        long end = Objects.isNull(limit) ? total : (long) offset + limit;
+        return (int) Math.min(end, total);
+    }
+}
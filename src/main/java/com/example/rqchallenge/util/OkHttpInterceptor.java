@@ -1,30 +1,76 @@
 /*
  * OkHttpInterceptor is interceptor for retry mechanism.
- * If http status is not 200 it will attempt the request again.
- * By default, it attempts 10 time, but later it can be changed based on requirements
+ * If http status is retryable as per the retry policy, it will attempt the request again after a backoff delay.
+ * Retries are bounded by the retry budget, so they never exceed a fraction of the traffic, and counted per endpoint.
+ * Blocking calls wait out the backoff here. Asynchronous calls are passed on, their caller reschedules the retry on a timer.
  */
 package com.example.rqchallenge.util;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class OkHttpInterceptor implements Interceptor {
+
+    private final RetryPolicy policy;
+    private final MeterRegistry registry;
+    private final Map<String, AtomicLong> retries = new ConcurrentHashMap<>();
+    private final Map<List<String>, Counter> retryCounters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upstream-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param policy
+     * @param registry retries are counted in, per method, URI template and status
+     */
+    public OkHttpInterceptor(RetryPolicy policy, MeterRegistry registry) {
+        this.policy = policy;
+        this.registry = registry;
+    }
+
     @NotNull
     @Override
     public Response intercept(@NotNull Chain chain) throws IOException {
         Request request = chain.request();
+        Attempt attempt = request.tag(Attempt.class);
+        if (Objects.nonNull(attempt)) {
+            // asynchronous calls are retried by their caller, so no dispatcher thread sleeps through the backoff
+            if (attempt.retryCount == 0) policy.getBudget().deposit();
+            return chain.proceed(request);
+        }
+        policy.getBudget().deposit();
         Response response = chain.proceed(request);
         int retryCount = 0;
-        // Retry 10 times if status is not 200
-        while (response.code() != 200 && retryCount < 10) {
+        long delay;
+        while ((delay = retryDelay(request, response, retryCount)) >= 0) {
             response.close(); //Until this response doesn't get closed, we cannot make another request
-            log.info(String.format("Intercept Request is not successful - %d", retryCount));
+            pause(delay);
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
             retryCount++;
             Request newRequest = request.newBuilder().build();
             response = chain.proceed(newRequest);
@@ -33,4 +79,108 @@ public class OkHttpInterceptor implements Interceptor {
         // Otherwise, just pass the original response on
         return response;
     }
+
+    /**
+     * Decide whether a response is retried, a granted retry is taken from the budget and counted
+     * @param request
+     * @param response
+     * @param retryCount retries done so far
+     * @return millis to wait before the retry, -1 in case the response is passed on
+     */
+    public long retryDelay(Request request, Response response, int retryCount) {
+        if (!policy.isRetryable(request, response, retryCount)) {
+            return -1;
+        }
+        long delay = policy.delayMillis(response, retryCount);
+        if (delay < 0 || !policy.getBudget().tryAcquire()) {
+            log.info(String.format("Intercept Request is not successful - %d, not retried", response.code()));
+            return -1;
+        }
+        log.info(String.format("Intercept Request is not successful - %d, retry %d in %d ms", response.code(), retryCount + 1, delay));
+        retries.computeIfAbsent(endpoint(request), key -> new AtomicLong()).incrementAndGet();
+        retryCounters.computeIfAbsent(Arrays.asList(request.method(), uri(request), String.valueOf(response.code())),
+                tags -> registry.counter("upstream.retries", "method", tags.get(0), "uri", tags.get(1), "status", tags.get(2)))
+                .increment();
+        return delay;
+    }
+
+    /**
+     * Mark an asynchronous attempt, the interceptor passes it on as is and the caller retries it via retryDelay and schedule
+     * @param request
+     * @param retryCount retries done so far
+     * @return request tagged with its attempt
+     */
+    public static Request attempt(Request request, int retryCount) {
+        return request.newBuilder().tag(Attempt.class, new Attempt(retryCount)).build();
+    }
+
+    /**
+     * @param retry sends the next attempt
+     * @param delayMillis
+     * @return scheduled retry
+     */
+    public ScheduledFuture<?> schedule(Runnable retry, long delayMillis) {
+        return timer.schedule(retry, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the retry timer once its client closes. Retries already waiting still go out after their backoff,
+     * they fail on the closed dispatcher instead of leaving their caller waiting forever
+     */
+    public void close() {
+        timer.shutdown();
+    }
+
+    /**
+     * @return number of retries per endpoint
+     */
+    public Map<String, Long> getRetryCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        retries.forEach((endpoint, count) -> counts.put(endpoint, count.get()));
+        return counts;
+    }
+
+    /**
+     * @param request
+     * @return method and path, with numeric path segments collapsed so IDs do not create new endpoints
+     */
+    static String endpoint(Request request) {
+        return request.method() + " " + uri(request);
+    }
+
+    /**
+     * @param request
+     * @return path, with numeric path segments collapsed so IDs do not create new URIs
+     */
+    static String uri(Request request) {
+        return uri(request.url());
+    }
+
+    /**
+     * @param url
+     * @return path, with numeric path segments collapsed so IDs do not create new URIs
+     */
+    static String uri(HttpUrl url) {
+        return url.encodedPath().replaceAll("/\\d+(?=/|$)", "/{id}");
+    }
+
+    private void pause(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Tag of an asynchronous attempt, the budget is deposited once for its first one
+     */
+    private static final class Attempt {
+        private final int retryCount;
+
+        Attempt(int retryCount) {
+            this.retryCount = retryCount;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Parallel search runs roster scans and index builds on a dedicated fork-join pool once the roster passes a size threshold.
+ * Smaller rosters stay sequential, the fork-join overhead would outweigh the gain.
+ * The pool is sized on its own, so a big query never competes with request threads or the common pool.
+ * It is a bean owned by the application context, which shuts the pool down when it closes.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class ParallelSearch implements DisposableBean {
+
+    public static final int DEFAULT_THRESHOLD = 50_000;
+
+    /**
+     * Runs everything on the calling thread, for snapshots and searches built outside the application context
+     */
+    public static final ParallelSearch SEQUENTIAL = new ParallelSearch(1, Integer.MAX_VALUE);
+
+    private final int parallelism;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * Pool sized as configured, it is used by searches and by snapshot index builds
+     * @param config
+     */
+    @Autowired
+    public ParallelSearch(CommonConfig config) {
+        this(config.getSearchParallelism(), config.getSearchParallelThreshold());
+        log.info("Parallel search on {} threads from {} employees", parallelism, threshold);
+    }
+
+    /**
+     * @param parallelism pool size, 0 for one thread per core
+     * @param threshold roster size from which work is split across the pool
+     */
+    public ParallelSearch(int parallelism, int threshold) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.threshold = Math.max(threshold, 1);
+        // a single thread never splits work, so it needs no pool
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("employee-search-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
+    }
+
+    /**
+     * Shut the pool down with the application context, work already running is finished
+     */
+    @Override
+    public void destroy() {
+        if (Objects.nonNull(pool)) {
+            pool.shutdown();
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param size
+     * @return true when work over this many elements is split across the pool
+     */
+    public boolean isParallel(int size) {
+        return parallelism > 1 && size >= threshold;
+    }
+
+    /**
+     * Run the work inside the pool, so parallel sorts and streams it starts use this pool instead of the common pool
+     * @param size number of elements the work covers
+     * @param work
+     * @return result of the work
+     */
+    public <T> T run(int size, Supplier<T> work) {
+        if (!isParallel(size) || isInPool()) {
+            return work.get();
+        }
+        return pool.submit(work::get).join();
+    }
+
+    /**
+     * Indexes in [0, size) accepted by the filter, in ascending order
+     * @param size
+     * @param filter
+     * @return accepted indexes
+     */
+    public int[] filter(int size, IntPredicate filter) {
+        if (!isParallel(size)) {
+            return filterRange(0, size, filter);
+        }
+        return pool.invoke(new FilterTask(0, size, Math.max(size / (parallelism * 4), 1024), filter));
+    }
+
+    /**
+     * Array of size elements, element i computed by the generator, in parallel for large sizes
+     * @param array empty array of the result size
+     * @param generator
+     * @return filled array
+     */
+    public <T> T[] fill(T[] array, IntFunction<T> generator) {
+        if (!isParallel(array.length)) {
+            Arrays.setAll(array, generator);
+            return array;
+        }
+        return run(array.length, () -> {
+            Arrays.parallelSetAll(array, generator);
+            return array;
+        });
+    }
+
+    private boolean isInPool() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool;
+    }
+
+    private static int[] filterRange(int from, int to, IntPredicate filter) {
+        int[] accepted = new int[Math.min(to - from, 16)];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            if (filter.test(i)) {
+                if (size == accepted.length) accepted = Arrays.copyOf(accepted, Math.min(size * 2, to - from));
+                accepted[size++] = i;
+            }
+        }
+        return size == accepted.length ? accepted : Arrays.copyOf(accepted, size);
+    }
+
+    /**
+     * Splits the range in halves down to the chunk size, results are concatenated left to right so order is kept
+     */
+    private static final class FilterTask extends RecursiveTask<int[]> {
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final IntPredicate filter;
+
+        FilterTask(int from, int to, int chunk, IntPredicate filter) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.filter = filter;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= chunk) {
+                return filterRange(from, to, filter);
+            }
+            int middle = (from + to) >>> 1;
+            FilterTask left = new FilterTask(from, middle, chunk, filter);
+            left.fork();
+            int[] right = new FilterTask(middle, to, chunk, filter).compute();
+            int[] leftResult = left.join();
+            int[] result = Arrays.copyOf(leftResult, leftResult.length + right.length);
+            System.arraycopy(right, 0, result, leftResult.length, right.length);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Range query holds the options of an employee salary or age range search
+ */
+package com.example.rqchallenge.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+import java.util.Objects;
+
+@Getter
+@AllArgsConstructor
+public class RangeQuery {
+
+    /** lowest salary, inclusive, null for no bound */
+    private final Integer minSalary;
+    /** highest salary, inclusive, null for no bound */
+    private final Integer maxSalary;
+    /** lowest age, inclusive, null for no bound */
+    private final Integer minAge;
+    /** highest age, inclusive, null for no bound */
+    private final Integer maxAge;
+    /** text the employee name has to contain, null for any name */
+    private final String name;
+    /** match only names having a word starting with the name text */
+    private final boolean prefix;
+    /** order of the results */
+    private final Sort sort;
+    /** highest first */
+    private final boolean descending;
+    /** number of matches to skip */
+    private final int offset;
+    /** max number of matches to return, null for all */
+    private final Integer limit;
+
+    public enum Sort {
+        SALARY, AGE, NAME, ID;
+
+        /**
+         * @param value sort field, case insensitive
+         * @return sort, null in case value is not a sort field
+         */
+        public static Sort parse(String value) {
+            for (Sort sort : values()) {
+                if (sort.name().equals(value.toUpperCase(Locale.ROOT))) {
+                    return sort;
+                }
+            }
+            return null;
+        }
+    }
+
+    public boolean hasSalaryRange() {
+        return Objects.nonNull(minSalary) || Objects.nonNull(maxSalary);
+    }
+
+    public boolean hasAgeRange() {
+        return Objects.nonNull(minAge) || Objects.nonNull(maxAge);
+    }
+
+    /**
+     * @return true in case bounds, offset and limit can match anything
+     */
+    public boolean isValid() {
+        return !isEmpty(minSalary, maxSalary) && !isEmpty(minAge, maxAge)
+                && offset >= 0 && (Objects.isNull(limit) || limit >= 0);
+    }
+
+    public boolean acceptsSalary(int salary) {
+        return salary != Integer.MIN_VALUE && salary >= getSalaryFrom() && salary <= getSalaryTo();
+    }
+
+    public boolean acceptsAge(int age) {
+        return age != Integer.MIN_VALUE && age >= getAgeFrom() && age <= getAgeTo();
+    }
+
+    public int getSalaryFrom() {
+        return Objects.isNull(minSalary) ? Integer.MIN_VALUE : minSalary;
+    }
+
+    public int getSalaryTo() {
+        return Objects.isNull(maxSalary) ? Integer.MAX_VALUE : maxSalary;
+    }
+
+    public int getAgeFrom() {
+        return Objects.isNull(minAge) ? Integer.MIN_VALUE : minAge;
+    }
+
+    public int getAgeTo() {
+        return Objects.isNull(maxAge) ? Integer.MAX_VALUE : maxAge;
+    }
+
+    public int getEnd(int total) {
+        long end = Objects.isNull(limit) ? total : (long) offset + limit;
+        return (int) Math.min(end, total);
+    }
+
+    private static boolean isEmpty(Integer min, Integer max) {
+        return Objects.nonNull(min) && Objects.nonNull(max) && min > max;
+    }
+}
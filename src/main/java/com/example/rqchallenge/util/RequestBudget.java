@@ -0,0 +1,44 @@
+/*
+ * Request budget is a token bucket which keeps extra upstream requests (e.g. retries) to a fraction of the regular traffic.
+ * Every regular request deposits a fraction of a token, every extra request withdraws a whole one.
+ */
+package com.example.rqchallenge.util;
+
+public class RequestBudget {
+
+    private final double ratio;
+    private final double capacity;
+    private double tokens;
+
+    /**
+     * @param ratio extra requests allowed per regular request, e.g. 0.1 for 10%
+     * @param capacity max tokens which can be saved up, this is the largest burst of extra requests
+     */
+    public RequestBudget(double ratio, double capacity) {
+        this.ratio = ratio;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    /**
+     * Record a regular request
+     */
+    public synchronized void deposit() {
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    /**
+     * @return true in case an extra request fits into the budget, the token is taken
+     */
+    public synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Response reader consumes the upstream response body as a byte stream,
+ * so the body can be parsed while it is being received instead of being buffered first.
+ * Only readers marked stateless may run for two calls of the same request at once, as hedged GETs do.
+ */
+package com.example.rqchallenge.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@FunctionalInterface
+public interface ResponseReader<T> {
+
+    /**
+     * @param body response body stream, closed by the caller once read returns
+     * @return value read from the body
+     * @throws IOException in case body cannot be read or parsed
+     */
+    T read(InputStream body) throws IOException;
+
+    /**
+     * @return true when the reader keeps no state and has no side effects other than reading, see {@link #stateless}
+     */
+    default boolean isStateless() {
+        return false;
+    }
+
+    /**
+     * @param reader which keeps no state between reads and has no side effects other than reading
+     * @return the reader, marked safe to run for two calls at once, so its GETs may be hedged
+     */
+    static <T> ResponseReader<T> stateless(ResponseReader<T> reader) {
+        return new Stateless<>(reader);
+    }
+
+    final class Stateless<T> implements ResponseReader<T> {
+        private final ResponseReader<T> reader;
+
+        private Stateless(ResponseReader<T> reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public T read(InputStream body) throws IOException {
+            return reader.read(body);
+        }
+
+        @Override
+        public boolean isStateless() {
+            return true;
+        }
+    }
+}
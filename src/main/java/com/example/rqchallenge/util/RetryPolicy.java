@@ -0,0 +1,99 @@
+/*
+ * Retry policy decides whether a failed upstream response is retried and how long to wait before.
+ * Only idempotent methods with a retryable status are retried, with exponential backoff and full jitter,
+ * honouring Retry-After, and only while the retry budget lasts.
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import lombok.Getter;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+@Getter
+public class RetryPolicy {
+
+    private static final List<String> IDEMPOTENT_METHODS = Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS");
+
+    // total attempts including the first one
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Set<Integer> retryableStatuses;
+    private final RequestBudget budget;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Set<Integer> retryableStatuses, RequestBudget budget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryableStatuses = retryableStatuses;
+        this.budget = budget;
+    }
+
+    public static RetryPolicy of(CommonConfig config) {
+        Set<Integer> statuses = Objects.isNull(config.getRetryStatuses()) ? new HashSet<>()
+                : Arrays.stream(config.getRetryStatuses()).boxed().collect(Collectors.toSet());
+        return new RetryPolicy(config.getRetryMaxAttempts(), config.getRetryBaseDelayMillis(), config.getRetryMaxDelayMillis(),
+                statuses, new RequestBudget(config.getRetryBudgetRatio(), config.getRetryBudgetCapacity()));
+    }
+
+    /**
+     * @param request
+     * @param response
+     * @param retryCount retries done so far
+     * @return true in case the response may be retried, budget is not consulted here.
+     * Not modified is an answer to a conditional request, never retried even if listed as retryable.
+     */
+    public boolean isRetryable(Request request, Response response, int retryCount) {
+        return retryCount + 1 < maxAttempts
+                && response.code() != ConditionalCache.NOT_MODIFIED
+                && retryableStatuses.contains(response.code())
+                && IDEMPOTENT_METHODS.contains(request.method());
+    }
+
+    /**
+     * @param response
+     * @param retryCount retries done so far
+     * @return millis to wait before next attempt, -1 in case upstream asks to wait longer than max delay
+     */
+    public long delayMillis(Response response, int retryCount) {
+        long retryAfter = retryAfterMillis(response.header("Retry-After"));
+        if (retryAfter > maxDelayMillis) {
+            return -1;
+        }
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(retryCount, 30));
+        long backoff = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+        return Math.max(backoff, retryAfter);
+    }
+
+    /**
+     * @param retryAfter header value, either delay seconds or HTTP date
+     * @return millis to wait as per header, 0 in case header is missing or invalid
+     */
+    static long retryAfterMillis(String retryAfter) {
+        if (Objects.isNull(retryAfter) || retryAfter.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+}
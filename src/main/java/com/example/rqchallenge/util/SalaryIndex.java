@@ -0,0 +1,128 @@
+/*
+ * Salary index keeps roster positions ordered by salary, highest first, in primitive arrays.
+ * It is built once per employee snapshot, so highest salary is O(1), top N is O(N)
+ * and a salary range is found by binary search in O(log n).
+ */
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.employees.EmployeeStore;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public final class SalaryIndex {
+
+    private final int[] salaries;
+    private final int[] positions;
+
+    private SalaryIndex(int[] salaries, int[] positions) {
+        this.salaries = salaries;
+        this.positions = positions;
+    }
+
+    /**
+     * Build index over the roster. Employees with equal salary keep their roster order,
+     * employees without salary are ranked last.
+     * @param store
+     * @param parallel pool the sort runs on for large rosters
+     * @return salary index
+     */
+    public static SalaryIndex of(EmployeeStore store, ParallelSearch parallel) {
+        int size = store.size();
+        // salary in the high half, reversed position in the low half: one primitive sort, no boxing
+        long[] keys = new long[size];
+        if (parallel.isParallel(size)) {
+            // run in the search pool, so the parallel sort forks there instead of the common pool
+            parallel.run(size, () -> {
+                Arrays.parallelSetAll(keys, i -> ((long) store.salaryOrMinAt(i) << 32) | (size - 1 - i));
+                Arrays.parallelSort(keys);
+                return keys;
+            });
+        } else {
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) store.salaryOrMinAt(i) << 32) | (size - 1 - i);
+            }
+            Arrays.sort(keys);
+        }
+
+        int[] salaries = new int[size];
+        int[] positions = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            long key = keys[size - 1 - rank];
+            salaries[rank] = (int) (key >> 32);
+            positions[rank] = size - 1 - (int) key;
+        }
+        return new SalaryIndex(salaries, positions);
+    }
+
+    public int size() {
+        return salaries.length;
+    }
+
+    /**
+     * @return the highest salary
+     * @throws NoSuchElementException in case no employee has a salary
+     */
+    public int getHighestSalary() {
+        // employees without salary are ranked last as Integer.MIN_VALUE, so it on top means nobody has one
+        if (salaries.length == 0 || salaries[0] == Integer.MIN_VALUE) {
+            throw new NoSuchElementException("No employee has a salary");
+        }
+        return salaries[0];
+    }
+
+    /**
+     * @param rank 0 based, 0 is the highest salary
+     * @return salary at given rank
+     */
+    public int salaryAt(int rank) {
+        return salaries[rank];
+    }
+
+    /**
+     * @param rank 0 based, 0 is the highest salary
+     * @return roster position of the employee at given rank
+     */
+    public int positionAt(int rank) {
+        return positions[rank];
+    }
+
+    /**
+     * Employees without salary are never in range
+     * @param min lowest salary, inclusive
+     * @param max highest salary, inclusive
+     * @return first rank in range and the rank after the last one, equal when none is in range
+     */
+    public int[] rankRange(int min, int max) {
+        min = Math.max(min, Integer.MIN_VALUE + 1);
+        if (min > max) {
+            return new int[]{0, 0};
+        }
+        return new int[]{firstRankAtMost(max), firstRankAtMost(min - 1)};
+    }
+
+    /**
+     * @param salary
+     * @return number of employees earning at least the salary, employees without salary are never counted
+     */
+    public int countAtLeast(int salary) {
+        return firstRankAtMost(Math.max(salary, Integer.MIN_VALUE + 1) - 1);
+    }
+
+    /**
+     * @return first rank with salary at most the given one, salaries being sorted highest first
+     */
+    private int firstRankAtMost(int salary) {
+        int low = 0;
+        int high = salaries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (salaries[middle] > salary) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
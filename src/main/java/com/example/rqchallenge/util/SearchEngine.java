@@ -1,53 +1,249 @@
 /*
  * Search engine class search on collection provided and given criteria
+ * Large rosters are scanned on the dedicated parallel search pool, results keep roster order.
  */
 package com.example.rqchallenge.util;
 
 import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeSnapshot;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 @Component
 public class SearchEngine {
 
+    private final ParallelSearch parallel;
+    private final Operation nameSearch;
+    private final Operation topBySalary;
+    private final Operation highestSalary;
+    private final Operation rangeSearch;
+    private final Operation idPage;
+
+    public SearchEngine() {
+        this(ParallelSearch.SEQUENTIAL, new SimpleMeterRegistry());
+    }
+
     /**
-     * search employee by name
-     * @param employees
+     * @param parallel pool large rosters are scanned on
+     * @param registry searches are timed in, per operation
+     */
+    @Autowired
+    public SearchEngine(ParallelSearch parallel, MeterRegistry registry) {
+        this.parallel = parallel;
+        this.nameSearch = new Operation("searchByName", registry);
+        this.topBySalary = new Operation("topBySalary", registry);
+        this.highestSalary = new Operation("highestSalary", registry);
+        this.rangeSearch = new Operation("searchByRange", registry);
+        this.idPage = new Operation("pageById", registry);
+    }
+
+    /**
+     * search employee by name, using the name index of the snapshot
+     * @param snapshot
      * @param filter
-     * @return
+     * @return employees whose name contains the filter, in roster order
+     */
+    public List<Employee> searchByName(EmployeeSnapshot snapshot, String filter){
+        long start = System.nanoTime();
+        List<Employee> result = toEmployees(snapshot, snapshot.matchName(filter, false), 0, Integer.MAX_VALUE);
+        nameSearch.record(start, result.size());
+        return result;
+    }
+
+    /**
+     * search employee by name with prefix, multi-token and paging options
+     * @param snapshot
+     * @param query
+     * @return requested page of matching employees, in roster order, or in ID order for a keyset page
+     */
+    public List<Employee> searchByName(EmployeeSnapshot snapshot, NameQuery query){
+        long start = System.nanoTime();
+        int[] positions = null;
+        for (String term : query.getTerms()) {
+            int[] matches = snapshot.matchName(term, query.isPrefix());
+            positions = Objects.isNull(positions) ? matches : NameIndex.intersect(positions, matches);
+        }
+        if (Objects.nonNull(query.getAfter())) {
+            positions = afterId(snapshot, positions, query.getAfter());
+        }
+        List<Employee> result = toEmployees(snapshot, positions, query.getOffset(), query.getEnd(positions.length));
+        nameSearch.record(start, result.size());
+        return result;
+    }
+
+    /**
+     * Keyset page of the roster in ID order, read through the ID index of the snapshot
+     * @param snapshot
+     * @param after ID of the last employee of the previous page, null for the first page
+     * @param limit
+     * @return employees following the ID, ascending by ID
+     */
+    public List<Employee> pageById(EmployeeSnapshot snapshot, Integer after, int limit){
+        long start = System.nanoTime();
+        int[] positions = snapshot.pageById(after, limit);
+        List<Employee> result = toEmployees(snapshot, positions, 0, positions.length);
+        idPage.record(start, result.size());
+        return result;
+    }
+
+    /**
+     * search employees by salary or age range, combined with the other range and the name filter.
+     * The salary range, or the age range when only that is given, is found by binary search over the sorted index
+     * of the snapshot, the other predicates are checked on those k employees only: O(log n + k) before sorting.
+     * @param snapshot
+     * @param query
+     * @return requested page of matching employees, ordered by the sort of the query
      */
-    public List<Employee> searchByName(List<Employee> employees, String filter){
-        return employees.stream()
-                .filter(item -> item.getEmployeeName().toLowerCase(Locale.ROOT).contains(filter.toLowerCase()))
-                .collect(Collectors.toList());
+    public List<Employee> searchByRange(EmployeeSnapshot snapshot, RangeQuery query){
+        long start = System.nanoTime();
+        boolean bySalary = query.hasSalaryRange() || !query.hasAgeRange();
+        int[] inRange = bySalary
+                ? snapshot.salaryBetween(query.getSalaryFrom(), query.getSalaryTo())
+                : snapshot.ageBetween(query.getAgeFrom(), query.getAgeTo());
+        boolean checkAge = bySalary && query.hasAgeRange();
+        int[] nameMatches = Objects.isNull(query.getName()) ? null : snapshot.matchName(query.getName(), query.isPrefix());
+
+        int[] positions = inRange;
+        if (checkAge || Objects.nonNull(nameMatches)) {
+            int[] accepted = parallel.filter(inRange.length, i ->
+                    (!checkAge || query.acceptsAge(snapshot.ageOrMinAt(inRange[i])))
+                            && (Objects.isNull(nameMatches) || Arrays.binarySearch(nameMatches, inRange[i]) >= 0));
+            positions = new int[accepted.length];
+            for (int i = 0; i < accepted.length; i++) {
+                positions[i] = inRange[accepted[i]];
+            }
+        }
+        // the salary index is highest first and the age index youngest first, any other order needs a sort
+        RangeQuery.Sort natural = bySalary ? RangeQuery.Sort.SALARY : RangeQuery.Sort.AGE;
+        if (query.getSort() != natural || query.isDescending() != bySalary) {
+            positions = sort(snapshot, positions, query.getSort(), query.isDescending());
+        }
+        List<Employee> result = toEmployees(snapshot, positions, query.getOffset(), query.getEnd(positions.length));
+        rangeSearch.record(start, result.size());
+        return result;
     }
 
     /**
-     * Get Top records as per salary
-     * @param employees
+     * Get Top records as per salary, read from the salary index of the snapshot
+     * @param snapshot
      * @param totalRecords
      * @return list of employee names
      */
-    public List<String> getTopRecordsBasedOnSalary(List<Employee> employees, int totalRecords){
-        return employees.stream()
-                .sorted((e1, e2)-> e2.getEmployeeSalary().compareTo(e1.getEmployeeSalary()))
-                .limit(totalRecords)
-                .map(e -> String.valueOf(e.getEmployeeName()))
-                .collect(Collectors.toList());
+    public List<String> getTopRecordsBasedOnSalary(EmployeeSnapshot snapshot, int totalRecords){
+        long start = System.nanoTime();
+        int[] positions = snapshot.topBySalary(totalRecords);
+        List<String> names = Arrays.asList(parallel.fill(new String[positions.length],
+                rank -> String.valueOf(snapshot.nameAt(positions[rank]))));
+        topBySalary.record(start, names.size());
+        return names;
     }
 
     /**
-     * Get the highest salary among all employees
-     * @param employees
+     * Get the highest salary among all employees, read from the salary index of the snapshot
+     * @param snapshot
      * @return highest salary
      */
-    public Integer getHighestSalaryOfEmployees(List<Employee> employees) {
-        return employees.stream()
-                .sorted((e1, e2)-> e2.getEmployeeSalary().compareTo(e1.getEmployeeSalary()))
-                .limit(1)
-                .collect(Collectors.toList()).get(0).getEmployeeSalary();
+    public Integer getHighestSalaryOfEmployees(EmployeeSnapshot snapshot) {
+        long start = System.nanoTime();
+        Integer salary = snapshot.getHighestSalary();
+        highestSalary.record(start, 1);
+        return salary;
+    }
+
+    /**
+     * @param positions matches in roster order
+     * @return matches with ID above the given one, ascending by ID, matches without ID left out
+     */
+    private static int[] afterId(EmployeeSnapshot snapshot, int[] positions, int after) {
+        // ID in the high half, position in the low half: one primitive sort over the matches only
+        long[] keys = new long[positions.length];
+        int count = 0;
+        for (int position : positions) {
+            Integer id = snapshot.idAt(position);
+            if (Objects.nonNull(id) && id > after) keys[count++] = ((long) id << 32) | position;
+        }
+        Arrays.sort(keys, 0, count);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Sort positions by the field, employees with equal values keep their roster order
+     */
+    private int[] sort(EmployeeSnapshot snapshot, int[] positions, RangeQuery.Sort sort, boolean descending) {
+        if (sort == RangeQuery.Sort.NAME) {
+            String[] names = parallel.fill(new String[positions.length],
+                    i -> NameIndex.normalize(snapshot.nameAt(positions[i])));
+            Comparator<Integer> byName = (left, right) -> descending
+                    ? names[right].compareTo(names[left]) : names[left].compareTo(names[right]);
+            return IntStream.range(0, positions.length).boxed()
+                    .sorted(byName.thenComparingInt(i -> positions[i]))
+                    .mapToInt(i -> positions[i])
+                    .toArray();
+        }
+        IntUnaryOperator value;
+        if (sort == RangeQuery.Sort.SALARY) {
+            value = snapshot::salaryOrMinAt;
+        } else if (sort == RangeQuery.Sort.AGE) {
+            value = snapshot::ageOrMinAt;
+        } else {
+            value = position -> Objects.requireNonNullElse(snapshot.idAt(position), Integer.MIN_VALUE);
+        }
+        // value in the high half, inverted for descending order, position in the low half: one primitive sort
+        long[] keys = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            int key = value.applyAsInt(positions[i]);
+            keys[i] = ((long) (descending ? ~key : key) << 32) | positions[i];
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    private List<Employee> toEmployees(EmployeeSnapshot snapshot, int[] positions, int from, int to) {
+        int end = Math.min(to, positions.length);
+        // large results are materialized in parallel, every employee lands at its own index so order is kept
+        return Arrays.asList(parallel.fill(new Employee[Math.max(end - from, 0)],
+                i -> snapshot.get(positions[from + i])));
+    }
+
+    /**
+     * Time and result size of one search operation
+     */
+    private static final class Operation {
+        private final Timer timer;
+        private final DistributionSummary results;
+
+        Operation(String name, MeterRegistry registry) {
+            this.timer = Timer.builder("employee.search")
+                    .tag("operation", name)
+                    .register(registry);
+            this.results = DistributionSummary.builder("employee.search.results")
+                    .tag("operation", name)
+                    .register(registry);
+        }
+
+        void record(long startNanos, int resultSize) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            results.record(resultSize);
+        }
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Single flight runs at most one call per key at a time.
+ * Callers arriving while a call for their key is in flight wait for it and share its result, instead of making their own call.
+ */
+package com.example.rqchallenge.util;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final Consumer<K> onCoalesced;
+
+    public SingleFlight() {
+        this(key -> { });
+    }
+
+    /**
+     * @param onCoalesced told the key of every caller which joins a call in flight, e.g. to count it per endpoint
+     */
+    public SingleFlight(Consumer<K> onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    /**
+     * Run the call on the current thread, or wait for the call already in flight for the key
+     * @param key
+     * @param call
+     * @return result of the call
+     * @throws Exception thrown by the call
+     */
+    public V execute(K key, Callable<V> call) throws Exception {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (Objects.nonNull(existing)) {
+            coalesced.incrementAndGet();
+            onCoalesced.accept(key);
+            return await(existing);
+        }
+        try {
+            V value = call.call();
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (!future.isDone()) {
+                future.completeExceptionally(new IllegalStateException("Call did not complete"));
+            }
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Start the call, or join the call already in flight for the key.
+     * Cancelling the returned future does not cancel the shared call.
+     * @param key
+     * @param call
+     * @return future of the result of the call
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (Objects.nonNull(existing)) {
+            coalesced.incrementAndGet();
+            onCoalesced.accept(key);
+            return existing.thenApply(Function.identity());
+        }
+        try {
+            call.get().whenComplete((value, e) -> {
+                inFlight.remove(key, future);
+                if (Objects.isNull(e)) {
+                    future.complete(value);
+                } else {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * @return number of callers which shared a call in flight instead of making their own
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = Objects.isNull(e.getCause()) ? e : e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Virtual threads gives out executors starting one virtual thread per task.
+ * A task blocked on upstream I/O parks its virtual thread instead of holding a platform thread.
+ */
+package com.example.rqchallenge.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param namePrefix threads are named prefix followed by a counter
+     * @return executor starting a new virtual thread for every task
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.rqchallenge;
 
 import com.example.rqchallenge.config.CommonConfig;
+import com.example.rqchallenge.config.Constants;
+import com.example.rqchallenge.employees.BatchResult;
 import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeResponseParser;
 import com.example.rqchallenge.employees.EmployeeService;
+import com.example.rqchallenge.employees.EmployeeSnapshot;
+import com.example.rqchallenge.employees.EmployeeSnapshotFile;
 import com.example.rqchallenge.employees.IEmployeeController;
+import com.example.rqchallenge.util.CircuitOpenException;
 import com.example.rqchallenge.util.CommonAPIClient;
+import com.example.rqchallenge.util.ParallelSearch;
+import com.example.rqchallenge.util.ResponseReader;
 import com.example.rqchallenge.util.SearchEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -19,12 +29,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -37,6 +56,10 @@ class RqChallengeApplicationTests {
     @Mock
     SearchEngine engine;
     @Spy
+    ParallelSearch parallelSearch = ParallelSearch.SEQUENTIAL;
+    @Spy
+    EmployeeResponseParser parser = new EmployeeResponseParser(new SimpleMeterRegistry());
+    @Spy
     @InjectMocks
     EmployeeService service;
 
@@ -63,15 +86,13 @@ class RqChallengeApplicationTests {
         responseData.put("data",array);
         responseData.put("status", "Success");
 
-        Optional response = Optional.ofNullable(responseData.toString());
-
-        when(client.getResponseFromDummyAPI(anyString(),anyString(),any())).thenReturn(response);
+        mockEmployeeListResponse(responseData.toString());
 
         //test
         List<Employee> employees = service.getAllEmployees();
 
         assertEquals(3, employees.size());
-        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
     }
 
     @Test
@@ -93,16 +114,14 @@ class RqChallengeApplicationTests {
         responseData.put("data",array);
         responseData.put("status", "Success");
 
-        Optional response = Optional.ofNullable(responseData.toString());
-
-        when(client.getResponseFromDummyAPI(anyString(),anyString(),any())).thenReturn(response);
+        mockEmployeeListResponse(responseData.toString());
         when(engine.searchByName(any(),anyString())).thenReturn(mockEmployeeList);
 
         //test
         List<Employee> employees = service.getEmployeesByNameSearch("cox");
 
         assertEquals(1, employees.size());
-        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
     }
     @Test
     void getEmployeeById() throws Exception {
@@ -128,6 +147,29 @@ class RqChallengeApplicationTests {
         verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
     }
 
+    @Test
+    void getEmployeeByIdAsync() throws Exception {
+        JSONObject responseData = new JSONObject("{\"status\":\"success\",\"data\":{\"id\":2, \"employee_name\":\"Garrett cox\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}}");
+
+        when(client.getResponseFromDummyAPIAsync(anyString(),anyString(),any()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(responseData.toString())));
+
+        //test
+        Employee employee = service.getEmployeeByIdAsync("2").get();
+
+        assertEquals("Garrett cox", employee.getEmployeeName());
+        verify(client, never()).getResponseFromDummyAPI(anyString(),anyString(),any());
+    }
+
+    @Test
+    void getEmployeeByIdAsyncNotFound() throws Exception {
+        when(client.getResponseFromDummyAPIAsync(anyString(),anyString(),any()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of("{\"status\":\"success\",\"data\":null}")));
+
+        //test
+        assertThrows(ExecutionException.class, () -> service.getEmployeeByIdAsync("404").get());
+    }
+
     @Test
     void getHighestSalaryOfEmployees() throws Exception {
         List<JSONObject> list = new ArrayList<>();
@@ -138,15 +180,13 @@ class RqChallengeApplicationTests {
         responseData.put("data",list.toString());
         responseData.put("status", "Success");
 
-        Optional response = Optional.ofNullable(responseData.toString());
-
-        when(client.getResponseFromDummyAPI(anyString(),anyString(),any())).thenReturn(response);
+        mockEmployeeListResponse(responseData.toString());
         when(engine.getHighestSalaryOfEmployees(any())).thenReturn(735000);
         //test
         Integer salary = service.getHighestSalaryOfEmployees();
 
         assertEquals(735000, salary);
-        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
     }
 
     @Test
@@ -161,15 +201,13 @@ class RqChallengeApplicationTests {
         responseData.put("data",list.toString());
         responseData.put("status", "Success");
 
-        Optional response = Optional.ofNullable(responseData.toString());
-
-        when(client.getResponseFromDummyAPI(anyString(),anyString(),any())).thenReturn(response);
+        mockEmployeeListResponse(responseData.toString());
         when(engine.getTopRecordsBasedOnSalary(any(),anyInt())).thenReturn(items);
         //test
         List<String> names = service.getTopTenHighestEarningEmployeeNames();
 
         assertEquals(items.size(), names.size());
-        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
     }
 
     @Test
@@ -207,8 +245,204 @@ class RqChallengeApplicationTests {
         verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
     }
 
+    @Test
+    void getEmployeeByIdServedFromIdCache() throws Exception {
+        enableIdCache();
+        when(client.getResponseFromDummyAPI(anyString(),anyString(),any()))
+                .thenReturn(Optional.of("{\"status\":\"success\",\"data\":{\"id\":2,\"employee_name\":\"Garrett cox\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}}"))
+                .thenReturn(Optional.of("{\"status\":\"success\"}"));
+
+        //test
+        assertEquals("Garrett cox", service.getEmployeeById("2").getEmployeeName());
+        assertEquals("Garrett cox", service.getEmployeeByIdAsync("2").get().getEmployeeName());
+        //delete uses the cached employee, only the DELETE goes to upstream
+        assertEquals("Employee record naming 'Garrett cox' is deleted", service.deleteEmployeeById("2"));
+        assertThrows(Exception.class, () -> service.getEmployeeById("2"));
+
+        verify(client, times(2)).getResponseFromDummyAPI(anyString(),anyString(),any());
+        verify(client, never()).getResponseFromDummyAPIAsync(anyString(),anyString(),any());
+    }
+
+    @Test
+    void getEmployeeByIdCachesMissingId() throws Exception {
+        enableIdCache();
+        when(client.getResponseFromDummyAPI(anyString(),anyString(),any()))
+                .thenReturn(Optional.of("{\"status\":\"success\",\"data\":null}"));
+
+        //test
+        assertThrows(Exception.class, () -> service.getEmployeeById("404"));
+        assertThrows(Exception.class, () -> service.getEmployeeById("404"));
+        assertThrows(ExecutionException.class, () -> service.getEmployeeByIdAsync("404").get());
+
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any());
+    }
+
+    @Test
+    void createEmployeesPatchesSnapshotOnce() throws Exception {
+        seedSnapshot();
+        AtomicInteger ids = new AtomicInteger(10);
+        when(client.getResponseFromDummyAPIAsync(anyString(),anyString(),any())).thenAnswer(invocation -> {
+            String input = invocation.<Optional<String>>getArgument(2).orElseThrow();
+            if(input.contains("Broken")){
+                return CompletableFuture.failedFuture(new Exception("upstream error"));
+            }
+            JSONObject employee = new JSONObject(input).put("id", ids.incrementAndGet());
+            return CompletableFuture.completedFuture(Optional.of(new JSONObject().put("status", "success").put("data", employee).toString()));
+        });
+        long version = (long) service.getSnapshotStats().get("version");
+
+        //test
+        List<BatchResult> results = service.createEmployeesAsync(Arrays.asList(
+                new JSONObject("{\"employee_name\":\"Brielle Williamson\",\"employee_salary\":372000}").toMap(),
+                new JSONObject("{\"employee_name\":\"Broken Input\"}").toMap(),
+                new JSONObject("{\"employee_name\":\"Herrod Chandler\",\"employee_salary\":137500}").toMap())).get();
+
+        assertEquals(Arrays.asList(BatchResult.SUCCESS, BatchResult.FAILED, BatchResult.SUCCESS),
+                results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+        assertEquals("Herrod Chandler", results.get(2).getEmployee().getEmployeeName());
+        assertEquals(version + 1, service.getSnapshotStats().get("version"));
+        assertEquals(3, service.getAllEmployees().size());
+    }
+
+    @Test
+    void deleteEmployeesDeduplicatesIds() throws Exception {
+        seedSnapshot();
+        when(client.getResponseFromDummyAPIAsync(anyString(),anyString(),any())).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0);
+            if(url.endsWith("/404")){
+                return CompletableFuture.completedFuture(Optional.of("{\"status\":\"success\",\"data\":null}"));
+            }
+            if(Constants.HttpMethods.DELETE.toString().equals(invocation.getArgument(1))){
+                return CompletableFuture.completedFuture(Optional.of("{\"status\":\"success\"}"));
+            }
+            return CompletableFuture.completedFuture(Optional.of("{\"status\":\"success\",\"data\":{\"id\":2,\"employee_name\":\"Garrett Winters\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}}"));
+        });
+        long version = (long) service.getSnapshotStats().get("version");
+
+        //test
+        List<BatchResult> results = service.deleteEmployeesAsync(Arrays.asList("2", "404", "2")).get();
+
+        assertEquals(Arrays.asList(BatchResult.SUCCESS, BatchResult.FAILED, BatchResult.SUCCESS),
+                results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+        assertEquals("Employee record naming 'Garrett Winters' is deleted", results.get(2).getMessage());
+        assertEquals(version + 1, service.getSnapshotStats().get("version"));
+        assertEquals(0, service.getAllEmployees().size());
+        //one lookup and one delete for ID 2, one lookup for ID 404
+        verify(client, times(3)).getResponseFromDummyAPIAsync(anyString(),anyString(),any());
+    }
+
+    @Test
+    void getAllEmployeesServedFromRestoredSnapshot(@TempDir Path directory) throws Exception {
+        EmployeeSnapshotFile file = new EmployeeSnapshotFile(directory.resolve("snapshot.bin"));
+        file.write(new EmployeeSnapshot(Arrays.asList(new Employee(2, "Garrett Winters", 170750, "63", "")), 1, System.currentTimeMillis()));
+        when(config.getSnapshotFile()).thenReturn(file.getPath().toString());
+        when(config.getSnapshotTtlMillis()).thenReturn(60000L);
+
+        //test
+        service.afterPropertiesSet();
+        List<Employee> employees = service.getAllEmployees();
+
+        assertEquals("Garrett Winters", employees.get(0).getEmployeeName());
+        assertEquals(1L, service.getSnapshotStats().get("restores"));
+        assertEquals(0L, service.getSnapshotStats().get("misses"));
+    }
+
+    private void seedSnapshot() throws Exception {
+        JSONObject empOne = new JSONObject("{\"id\":2, \"employee_name\":\"Garrett Winters\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}");
+        JSONObject responseData = new JSONObject();
+        responseData.put("data",new JSONArray(Arrays.asList(empOne)));
+        responseData.put("status", "Success");
+        when(config.getSnapshotTtlMillis()).thenReturn(60000L);
+        mockEmployeeListResponse(responseData.toString());
+        service.getAllEmployees();
+    }
+
+    private void enableIdCache() {
+        when(config.getIdCacheMaxSize()).thenReturn(100);
+        when(config.getIdCacheTtlMillis()).thenReturn(60000L);
+        when(config.getIdCacheNegativeTtlMillis()).thenReturn(60000L);
+    }
+
+    @Test
+    void getAllEmployeesServedFromSnapshot() throws Exception {
+        JSONObject empOne = new JSONObject("{\"id\":2, \"employee_name\":\"Garrett Winters\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}");
+        JSONObject responseData = new JSONObject();
+        responseData.put("data",new JSONArray(Arrays.asList(empOne)));
+        responseData.put("status", "Success");
+
+        when(config.getSnapshotTtlMillis()).thenReturn(60000L);
+        mockEmployeeListResponse(responseData.toString());
+
+        //test
+        service.getAllEmployees();
+        List<Employee> employees = service.getAllEmployees();
+
+        assertEquals(1, employees.size());
+        assertEquals(1L, service.getSnapshotStats().get("misses"));
+        assertEquals(1L, service.getSnapshotStats().get("hits"));
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
+    }
+
+    @Test
+    void getAllEmployeesFallsBackToStaleSnapshot() throws Exception {
+        JSONObject empOne = new JSONObject("{\"id\":2, \"employee_name\":\"Garrett Winters\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}");
+        JSONObject responseData = new JSONObject();
+        responseData.put("data",new JSONArray(Arrays.asList(empOne)));
+        responseData.put("status", "Success");
+
+        mockEmployeeListResponse(responseData.toString());
+        service.getAllEmployees();
+        doThrow(new CircuitOpenException("open")).when(client).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
+
+        //test
+        List<Employee> employees = service.getAllEmployees();
+
+        assertEquals(1, employees.size());
+        assertTrue(service.isServingStaleSnapshot());
+        verify(client, times(2)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
+    }
+
+    @Test
+    void streamAllEmployees() throws Exception {
+        JSONObject empOne = new JSONObject("{\"id\":2, \"employee_name\":\"Garrett Winters\",\"employee_salary\":170750,\"employee_age\":63,\"profile_image\":\"\"}");
+        JSONObject empTwo = new JSONObject("{\"id\":3, \"employee_name\":\"Ashton Cox\",\"employee_salary\":86000,\"employee_age\":66,\"profile_image\":\"\"}");
+        JSONObject responseData = new JSONObject();
+        responseData.put("status", "success");
+        responseData.put("data",new JSONArray(Arrays.asList(empOne, empTwo)));
+
+        when(config.getSnapshotTtlMillis()).thenReturn(60000L);
+        mockEmployeeListResponse(responseData.toString());
+
+        //test, first from upstream and then from snapshot
+        List<Employee> streamed = new ArrayList<>();
+        service.streamAllEmployees(streamed::add);
+        service.streamAllEmployees(streamed::add);
+
+        assertEquals(4, streamed.size());
+        assertEquals("Ashton Cox", streamed.get(3).getEmployeeName());
+        verify(client, times(1)).getResponseFromDummyAPI(anyString(),anyString(),any(),any());
+    }
+
+    @Test
+    void getAllEmployeesRejectsUnsuccessfulStatus() throws Exception {
+        JSONObject responseData = new JSONObject();
+        responseData.put("status", "error");
+        responseData.put("message", "Too Many Attempts.");
+
+        mockEmployeeListResponse(responseData.toString());
+
+        //test
+        assertThrows(Exception.class, () -> service.getAllEmployees());
+        assertEquals(1L, service.getSnapshotStats().get("refreshFailures"));
+    }
+
     @Test
     void contextLoads() {
     }
 
+    private void mockEmployeeListResponse(String responseData) throws Exception {
+        when(client.getResponseFromDummyAPI(anyString(),anyString(),any(),any())).thenAnswer(invocation -> Optional.ofNullable(
+                invocation.<ResponseReader<?>>getArgument(3).read(new ByteArrayInputStream(responseData.getBytes(StandardCharsets.UTF_8)))));
+    }
+
 }
@@ -0,0 +1,35 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EmployeeFieldsTests {
+
+    List<Employee> employees = Arrays.asList(
+            new Employee(1, "Tiger \"Ty\" Nixon", 320800, "61", "img/1.png"),
+            new Employee(2, null, null, "63", ""));
+
+    @Test
+    void writesOnlyProjectedFieldsInEmployeeOrder() throws Exception {
+        EmployeeFields fields = EmployeeFields.parse("employee_name, id");
+
+        assertEquals("[{\"id\":1,\"employee_name\":\"Tiger \\\"Ty\\\" Nixon\"},{\"id\":2}]",
+                new String(fields.write(employees), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void allFieldsWriteFullEmployees() throws Exception {
+        assertSame(EmployeeFields.ALL, EmployeeFields.parse(null));
+        assertSame(EmployeeFields.ALL, EmployeeFields.parse("id,employee_name,employee_salary,employee_age,profile_image"));
+        assertEquals(EmployeeResponseParser.MAPPER.writeValueAsString(employees),
+                new String(EmployeeFields.ALL.write(employees), StandardCharsets.UTF_8));
+        assertNull(EmployeeFields.parse("id,salary"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmployeeResponseCacheTests {
+
+    @Test
+    void rendersOncePerVersionAndView() throws Exception {
+        EmployeeResponseCache cache = new EmployeeResponseCache(-1);
+        AtomicInteger renders = new AtomicInteger();
+        EmployeeResponseCache.Render render = () -> ("[" + renders.incrementAndGet() + "]").getBytes(StandardCharsets.UTF_8);
+
+        EmployeeResponseCache.Response first = cache.get("\"a-1\"", EmployeeResponseCache.View.ALL_EMPLOYEES, render);
+        assertSame(first, cache.get("\"a-1\"", EmployeeResponseCache.View.ALL_EMPLOYEES, render));
+        cache.get("\"a-1\"", EmployeeResponseCache.View.HIGHEST_SALARY, render);
+        assertEquals(2, renders.get());
+
+        EmployeeResponseCache.Response next = cache.get("\"a-2\"", EmployeeResponseCache.View.ALL_EMPLOYEES, render);
+        assertEquals("[3]", new String(next.getBody(), StandardCharsets.UTF_8));
+        assertEquals("\"a-2\"", next.getETag());
+        assertNull(next.getGzipped());
+
+        assertThrows(IllegalStateException.class, () -> cache.get("\"a-2\"", EmployeeResponseCache.View.TOP_TEN_NAMES, () -> {
+            throw new IllegalStateException("roster is empty");
+        }));
+        assertEquals("[4]", new String(cache.get("\"a-2\"", EmployeeResponseCache.View.TOP_TEN_NAMES, render).getBody(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void gzipsOnlyBodiesWorthCompressing() throws Exception {
+        EmployeeResponseCache cache = new EmployeeResponseCache(64);
+        byte[] large = "[\"Tiger Nixon\",\"Tiger Nixon\",\"Tiger Nixon\",\"Tiger Nixon\",\"Tiger Nixon\",\"Tiger Nixon\"]"
+                .getBytes(StandardCharsets.UTF_8);
+
+        EmployeeResponseCache.Response small = cache.get("\"a-1\"", EmployeeResponseCache.View.HIGHEST_SALARY,
+                () -> "433060".getBytes(StandardCharsets.UTF_8));
+        EmployeeResponseCache.Response names = cache.get("\"a-1\"", EmployeeResponseCache.View.TOP_TEN_NAMES, () -> large);
+
+        assertNull(small.getGzipped());
+        byte[] gzipped = names.getGzipped();
+        assertSame(gzipped, names.getGzipped());
+        assertArrayEquals(large, gunzip(gzipped));
+        assertEquals(1L, cache.getStats().get("compressions"));
+    }
+
+    @Test
+    void acceptsGzip() {
+        assertTrue(IEmployeeImpl.acceptsGzip("gzip, deflate, br"));
+        assertTrue(IEmployeeImpl.acceptsGzip("br;q=1.0, *;q=0.5"));
+        assertFalse(IEmployeeImpl.acceptsGzip("gzip;q=0"));
+        assertFalse(IEmployeeImpl.acceptsGzip("identity"));
+        assertFalse(IEmployeeImpl.acceptsGzip(null));
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        }
+    }
+}
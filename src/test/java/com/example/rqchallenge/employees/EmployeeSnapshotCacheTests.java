@@ -0,0 +1,63 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmployeeSnapshotCacheTests {
+
+    EmployeeSnapshotCache cache = new EmployeeSnapshotCache();
+
+    EmployeeStore store = EmployeeStore.of(Arrays.asList(
+            new Employee(1, "Tiger Nixon", 320800, "61", ""),
+            new Employee(2, "Garrett Winters", 170750, "63", "")));
+
+    @Test
+    void republishedStoreIsRevalidatedNotRebuilt() throws Exception {
+        EmployeeSnapshot published = cache.publish(store);
+        String eTag = cache.getETag(published);
+        Thread.sleep(5);
+
+        //test, e.g. the roster reused on a 304 from upstream
+        EmployeeSnapshot revalidated = cache.publish(store);
+
+        assertEquals(published.getVersion(), revalidated.getVersion());
+        assertEquals(eTag, cache.getETag(revalidated));
+        assertSame(published.getSalaryIndex(), revalidated.getSalaryIndex());
+        assertTrue(revalidated.getRefreshedAt() > published.getRefreshedAt());
+        assertEquals(1L, cache.getStats().get("revalidations"));
+    }
+
+    @Test
+    void patchChangesETagAndSurvivesRevalidation() {
+        EmployeeSnapshot published = cache.publish(store);
+
+        //test
+        cache.patch((snapshot, version) -> snapshot.withoutEmployee(2, version));
+        EmployeeSnapshot revalidated = cache.publish(store);
+
+        assertNotEquals(cache.getETag(published), cache.getETag(revalidated));
+        assertEquals(1, revalidated.size());
+        assertTrue(cache.getETag(revalidated).startsWith("\"") && cache.getETag(revalidated).endsWith("\""));
+    }
+
+    @Test
+    void closedCacheSkipsBackgroundRefresh() throws Exception {
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        //test
+        cache.close();
+        cache.refreshInBackground(refreshed::countDown);
+        cache.refreshInBackground(refreshed::countDown);
+
+        assertFalse(refreshed.await(200, TimeUnit.MILLISECONDS));
+    }
+}
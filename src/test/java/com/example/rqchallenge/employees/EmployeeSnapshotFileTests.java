@@ -0,0 +1,73 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmployeeSnapshotFileTests {
+
+    @TempDir
+    Path directory;
+
+    List<Employee> employees = Arrays.asList(
+            new Employee(1, "Tiger Nixon", 320800, "61", ""),
+            new Employee(2, "Zoë Ångström", null, "063", "https://example.com/2.png"),
+            new Employee(null, null, 0, null, ""),
+            new Employee(4, "", Integer.MIN_VALUE, "forty", null));
+
+    @Test
+    void persistedRosterReadsBackAsWritten() throws Exception {
+        EmployeeSnapshotFile file = new EmployeeSnapshotFile(directory.resolve("data/snapshot.bin"));
+
+        //test
+        file.write(new EmployeeSnapshot(employees, 3, 1234L));
+        EmployeeSnapshotFile.Persisted persisted = file.read().orElseThrow();
+
+        assertEquals(employees, persisted.getStore().asList());
+        assertEquals(1234L, persisted.getRefreshedAt());
+        assertEquals(1, Files.list(directory.resolve("data")).count());
+    }
+
+    @Test
+    void damagedOrForeignFileIsIgnored() throws Exception {
+        Path path = directory.resolve("snapshot.bin");
+        EmployeeSnapshotFile file = new EmployeeSnapshotFile(path);
+        assertFalse(file.read().isPresent());
+
+        file.write(new EmployeeSnapshot(employees, 1, 0));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        assertFalse(file.read().isPresent());
+
+        Files.writeString(path, "not a snapshot, but long enough to hold a header");
+        assertFalse(file.read().isPresent());
+
+        //test, a good write replaces the damaged file
+        file.write(new EmployeeSnapshot(employees, 2, 0));
+        assertTrue(file.read().isPresent());
+    }
+
+    @Test
+    void closeWaitsForPendingWrite() {
+        EmployeeSnapshotFile file = new EmployeeSnapshotFile(directory.resolve("snapshot.bin"));
+
+        //test
+        file.writeInBackground(new EmployeeSnapshot(employees, 5, 4321L));
+        file.close();
+
+        assertEquals(4321L, file.read().orElseThrow().getRefreshedAt());
+        file.writeInBackground(new EmployeeSnapshot(employees, 6, 0));
+        assertEquals(4321L, file.read().orElseThrow().getRefreshedAt());
+    }
+}
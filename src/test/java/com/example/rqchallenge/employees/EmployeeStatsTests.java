@@ -0,0 +1,58 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EmployeeStatsTests {
+
+    @Test
+    void statsOfRoster() {
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(Arrays.asList(
+                new Employee(1, "Tiger Nixon", 320800, "61", ""),
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "066", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Airi Satou", 162700, "33", ""),
+                new Employee(6, "Brielle Williamson", null, "unknown", "")), 3, 0);
+
+        EmployeeStats stats = EmployeeStats.of(snapshot, Arrays.asList(50.0, 90.0, 99.9));
+
+        assertEquals(3, stats.getVersion());
+        assertEquals(6, stats.getCount());
+        assertEquals(5, stats.getSalaried());
+        assertEquals(234662.0, stats.getAverageSalary(), 0.001);
+        assertEquals(86000, stats.getMinSalary());
+        assertEquals(433060, stats.getMaxSalary());
+        assertEquals(170750, stats.getPercentiles().get("p50"));
+        assertEquals(433060, stats.getPercentiles().get("p90"));
+        assertEquals(433060, stats.getPercentiles().get("p99.9"));
+        assertEquals(1, stats.getSalaryHistogram().get(1).getCount());
+        assertEquals(2, stats.getSalaryHistogram().get(3).getCount());
+        assertEquals(Integer.valueOf(450000), stats.getSalaryHistogram().get(9).getFrom());
+        assertNull(stats.getSalaryHistogram().get(9).getTo());
+
+        EmployeeStats.AgeBucket sixties = stats.getAgeBuckets().get(5);
+        assertEquals(Integer.valueOf(60), sixties.getFrom());
+        assertNull(sixties.getTo());
+        assertEquals(3, sixties.getCount());
+        assertEquals((320800 + 170750 + 86000) / 3.0, sixties.getAverageSalary(), 0.001);
+        EmployeeStats.AgeBucket unknown = stats.getAgeBuckets().get(6);
+        assertEquals(1, unknown.getCount());
+        assertEquals(0, unknown.getSalaried());
+        assertNull(unknown.getAverageSalary());
+
+        EmployeeSnapshot patched = snapshot.withChanges(List.of(new Employee(7, "Colleen Hurst", 205500, "39", "")),
+                List.of(4), 4, EmployeeSnapshot.DEFAULT_COMPACTION_THRESHOLD);
+        EmployeeStats patchedStats = EmployeeStats.of(patched, Collections.singletonList(50.0));
+        assertEquals(6, patchedStats.getCount());
+        assertEquals(320800, patchedStats.getMaxSalary());
+        assertEquals(170750, patchedStats.getPercentiles().get("p50"));
+        assertEquals(2, patchedStats.getAgeBuckets().get(2).getCount());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmployeeStoreTests {
+
+    List<Employee> employees = Arrays.asList(
+            new Employee(1, "Tiger Nixon", 320800, "61", ""),
+            new Employee(2, "Zoë Ångström", null, "063", "https://example.com/2.png"),
+            new Employee(null, null, 0, null, ""),
+            new Employee(4, "", Integer.MIN_VALUE, "forty", null),
+            new Employee(5, "Ashton Cox", 86000, "-32768", ""));
+
+    @Test
+    void storeReadsBackEmployeesAsReceived() {
+        EmployeeStore store = EmployeeStore.of(employees);
+
+        assertEquals(employees, store.asList());
+        assertEquals(employees.get(1), store.get(1));
+        assertEquals(3, store.positionOf(4));
+    }
+
+    @Test
+    void snapshotPatchesKeepCompactRosterInOrder() {
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(employees, 1, 0);
+        Employee replaced = new Employee(2, "Garrett Winters", 170750, "63", "");
+
+        EmployeeSnapshot patched = snapshot.withEmployee(replaced, 2).withoutEmployee(1, 3);
+
+        assertEquals(Arrays.asList(employees.get(2), employees.get(3), employees.get(4), replaced), patched.getEmployees());
+        assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    void deltaPatchesMatchFullRebuild() {
+        Random random = new Random(7);
+        List<Employee> roster = new ArrayList<>();
+        for (int id = 1; id <= 300; id++) {
+            roster.add(new Employee(id, "Name" + id + " Person" + (id % 7), random.nextInt(50) * 1000, "30", ""));
+        }
+        EmployeeSnapshot delta = new EmployeeSnapshot(roster, 1, 0);
+        EmployeeSnapshot rebuilt = delta;
+
+        for (int version = 2; version < 200; version++) {
+            List<Employee> added = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            if (random.nextBoolean()) {
+                int id = 1 + random.nextInt(400);
+                added.add(new Employee(id, "Name" + id + " Added" + version, random.nextInt(60) * 1000, "40", ""));
+            } else {
+                removed.add(1 + random.nextInt(400));
+            }
+            delta = delta.withChanges(added, removed, version, 64);
+            rebuilt = rebuilt.withChanges(added, removed, version, 0);
+
+            assertEquals(rebuilt.getEmployees(), delta.getEmployees());
+            assertEquals(rebuilt.size(), delta.size());
+            assertEquals(names(rebuilt, rebuilt.matchName("added", false)), names(delta, delta.matchName("added", false)));
+            assertEquals(names(rebuilt, rebuilt.matchName("person3", true)), names(delta, delta.matchName("person3", true)));
+            assertEquals(names(rebuilt, rebuilt.topBySalary(25)), names(delta, delta.topBySalary(25)));
+            assertEquals(rebuilt.getHighestSalary(), delta.getHighestSalary());
+            assertEquals(names(rebuilt, rebuilt.salaryBetween(10000, 30000)), names(delta, delta.salaryBetween(10000, 30000)));
+            assertEquals(names(rebuilt, rebuilt.ageBetween(35, 50)), names(delta, delta.ageBetween(35, 50)));
+            assertEquals(names(rebuilt, rebuilt.pageById(null, 20)), names(delta, delta.pageById(null, 20)));
+            assertEquals(names(rebuilt, rebuilt.pageById(250, 100)), names(delta, delta.pageById(250, 100)));
+            assertEquals(EmployeeStats.of(rebuilt, Arrays.asList(0.0, 10.0, 50.0, 99.0)),
+                    EmployeeStats.of(delta, Arrays.asList(0.0, 10.0, 50.0, 99.0)));
+        }
+        assertEquals(0, rebuilt.getDeltaSize());
+        assertTrue(delta.getDeltaSize() <= 64);
+        assertEquals(rebuilt.getEmployees(), delta.toStore().asList());
+    }
+
+    @Test
+    void highestSalaryOfPatchedRosterWithoutSalaries() {
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(List.of(new Employee(1, "Tiger Nixon", 320800, "61", "")), 1, 0)
+                .withChanges(List.of(new Employee(2, "Garrett Winters", null, "63", "")), List.of(1), 2, 64);
+
+        assertEquals(1, snapshot.size());
+        assertThrows(NoSuchElementException.class, snapshot::getHighestSalary);
+    }
+
+    @Test
+    void positionsOfUsesIdIndex() {
+        EmployeeStore store = EmployeeStore.of(Arrays.asList(
+                new Employee(7, "A", 1, "1", ""), new Employee(-3, "B", 1, "1", ""), new Employee(7, "C", 1, "1", "")));
+
+        assertArrayEquals(new int[]{0, 2}, store.positionsOf(7));
+        assertArrayEquals(new int[]{1}, store.positionsOf(-3));
+        assertArrayEquals(new int[0], store.positionsOf(8));
+    }
+
+    private static List<String> names(EmployeeSnapshot snapshot, int[] positions) {
+        return Arrays.stream(positions).mapToObj(snapshot::nameAt).collect(Collectors.toList());
+    }
+}
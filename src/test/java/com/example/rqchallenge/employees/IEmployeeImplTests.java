@@ -0,0 +1,55 @@
+package com.example.rqchallenge.employees;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IEmployeeImplTests {
+
+    EmployeeService service = mock(EmployeeService.class);
+    IEmployeeImpl controller = new IEmployeeImpl();
+    EmployeeSnapshot first = new EmployeeSnapshot(List.of(new Employee(1, "Tiger Nixon", 320800, "61", "")), 1, 0);
+    EmployeeSnapshot second = new EmployeeSnapshot(List.of(new Employee(1, "Tiger Nixon", 320800, "61", ""),
+            new Employee(2, "Garrett Winters", 170750, "63", "")), 2, 0);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        controller.employeeService = service;
+        // a refresh publishes the second snapshot right after the first one was resolved
+        when(service.getSnapshot()).thenReturn(first, second);
+        when(service.getSnapshotETag(any())).thenAnswer(call -> "\"" + call.<EmployeeSnapshot>getArgument(0).getVersion() + "\"");
+        when(service.getEmployeeStats(any(), anyList())).thenAnswer(call -> EmployeeStats.of(call.getArgument(0), call.getArgument(1)));
+    }
+
+    @Test
+    void snapshotReadIsTaggedWithSnapshotItWasReadFrom() throws Exception {
+        //test
+        ResponseEntity<EmployeeStats> response = controller.getEmployeeStats(List.of(50.0), null);
+
+        assertEquals("\"1\"", response.getHeaders().getETag());
+        assertEquals(1, response.getBody().getVersion());
+        assertEquals(1, response.getBody().getCount());
+        verify(service, times(1)).getSnapshot();
+    }
+
+    @Test
+    void matchingSnapshotSkipsRead() throws Exception {
+        //test
+        ResponseEntity<EmployeeStats> response = controller.getEmployeeStats(List.of(50.0), "\"1\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(service, never()).getEmployeeStats(any(), anyList());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.rqchallenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPipelineTests {
+
+    @Test
+    void keepsAtMostConcurrencyCallsInFlight() throws Exception {
+        List<Integer> items = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        CompletableFuture<List<Integer>> results = BoundedPipeline.run(items, 3, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, (item, e) -> -1);
+
+        // complete calls in reverse start order where possible, results still come back in item order
+        while (!results.isDone()) {
+            CompletableFuture<Integer> call = calls.stream().filter(future -> !future.isDone()).reduce((first, second) -> second).orElseThrow();
+            inFlight.decrementAndGet();
+            call.complete(calls.indexOf(call) * 10);
+        }
+
+        assertEquals(3, maxInFlight.get());
+        assertEquals(10, calls.size());
+        assertEquals(items.stream().map(item -> item * 10).collect(Collectors.toList()), results.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedCallsAreMappedPerItem() throws Exception {
+        List<Integer> results = BoundedPipeline.run(Arrays.asList(1, 2, 3), 2,
+                item -> item == 2 ? CompletableFuture.failedFuture(new IllegalStateException("failed " + item))
+                        : CompletableFuture.completedFuture(item),
+                (item, e) -> e instanceof IllegalStateException ? -item : 0).get(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1, -2, 3), results);
+    }
+
+    @Test
+    void emptyBatchCompletesRightAway() {
+        CompletableFuture<List<Object>> results = BoundedPipeline.run(List.of(), 4, item -> new CompletableFuture<>(), (item, e) -> null);
+
+        assertTrue(results.isDone());
+        assertFalse(results.isCompletedExceptionally());
+        assertEquals(0, results.join().size());
+    }
+}
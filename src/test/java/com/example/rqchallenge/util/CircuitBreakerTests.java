@@ -0,0 +1,67 @@
+package com.example.rqchallenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    AtomicLong clock = new AtomicLong();
+
+    // 50% failures, 80% slow calls over 1 second, window of 4, open for 10 seconds, 2 trial calls
+    CircuitBreaker breaker = new CircuitBreaker(true, 50, 80, 1000, 4, 4, 10000, 2, clock::get);
+
+    @Test
+    void opensOnFailureRateAndFailsFast() {
+        record(false, 10);
+        record(true, 10);
+        record(false, 10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        record(true, 10);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void opensOnSlowCallRate() {
+        for (int i = 0; i < 4; i++) {
+            record(false, 2000);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenTrialCallsCloseOrReopen() {
+        for (int i = 0; i < 4; i++) {
+            record(true, 10);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+        //trial calls fail, open again
+        record(true, 10);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        record(true, 10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        //trial calls succeed, close
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        record(false, 10);
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+        breaker.onResult(false, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    void record(boolean failure, long millis) {
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onResult(failure, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.config.CommonConfig;
+import com.example.rqchallenge.config.Constants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommonAPIClientTests {
+
+    MockWebServer server;
+    CommonAPIClient client;
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    AtomicInteger reads = new AtomicInteger();
+    ResponseReader<String> reader = body -> {
+        reads.incrementAndGet();
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CommonConfig config = new CommonConfig();
+        config.setMaxIdleConnections(1);
+        config.setKeepAliveMillis(1000);
+        config.setMaxRequests(8);
+        config.setMaxRequestsPerHost(8);
+        config.setRetryStatuses(new int[0]);
+        config.setConditionalEnabled(true);
+        config.setConditionalMaxEntries(10);
+        client = new CommonAPIClient(config, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.destroy();
+        server.shutdown();
+    }
+
+    @Test
+    void notModifiedReusesValueReadBefore() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"status\":\"success\"}"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        String url = server.url("/api/v1/employees").toString();
+
+        //test
+        String first = get(url).orElseThrow();
+        String second = get(url).orElseThrow();
+        String third = client.getResponseFromDummyAPIAsync(url, Constants.HttpMethods.GET.toString(), Optional.empty(), reader)
+                .get(5, TimeUnit.SECONDS).orElseThrow();
+
+        assertSame(first, second);
+        assertSame(first, third);
+        assertEquals(1, reads.get());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(2L, client.getClientStats().get("notModified"));
+    }
+
+    @Test
+    void urlIsForgottenOnceValidatorsGo() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Last-Modified", "Mon, 05 Oct 2026 10:00:00 GMT").setBody("one"));
+        server.enqueue(new MockResponse().setBody("two"));
+        server.enqueue(new MockResponse().setBody("three"));
+        String url = server.url("/api/v1/employee/1").toString();
+
+        //test
+        get(url);
+        get(url);
+        get(url);
+
+        assertEquals(3, reads.get());
+        assertNull(server.takeRequest().getHeader("If-Modified-Since"));
+        RecordedRequest revalidated = server.takeRequest();
+        assertEquals("Mon, 05 Oct 2026 10:00:00 GMT", revalidated.getHeader("If-Modified-Since"));
+        assertNull(revalidated.getHeader("If-None-Match"));
+        assertNull(server.takeRequest().getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    void slowGetIsHedgedAndFirstAnswerWins() throws Exception {
+        client.destroy();
+        client = hedgingClient();
+        server.enqueue(new MockResponse().setBody("warm"));
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+        String url = server.url("/api/v1/employee/1").toString();
+
+        //test
+        assertEquals("warm", client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty()).orElseThrow());
+        long start = System.nanoTime();
+        String hedged = client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty()).orElseThrow();
+
+        assertEquals("fast", hedged);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertEquals(3, server.getRequestCount());
+        Map<?, ?> hedges = (Map<?, ?>) client.getClientStats().get("hedges");
+        assertEquals(1L, hedges.get("sent"));
+        assertEquals(1L, hedges.get("won"));
+    }
+
+    @Test
+    void streamingReadIsNeverHedged() throws Exception {
+        client.destroy();
+        client = hedgingClient();
+        server.enqueue(new MockResponse().setBody("[]"));
+        server.enqueue(new MockResponse().setBody("[1,2,3,4,5,6,7,8]").throttleBody(4, 500, TimeUnit.MILLISECONDS));
+        String url = server.url("/api/v1/employees").toString();
+        StringBuilder streamed = new StringBuilder();
+
+        //test
+        client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty());
+        String read = client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty(), body -> {
+            int value;
+            while ((value = body.read()) >= 0) streamed.append((char) value);
+            return streamed.toString();
+        }).orElseThrow();
+
+        assertEquals("[1,2,3,4,5,6,7,8]", read);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0L, ((Map<?, ?>) client.getClientStats().get("hedges")).get("sent"));
+    }
+
+    @Test
+    void asyncRetryWaitsWithoutHoldingDispatcher() throws Exception {
+        CommonConfig config = new CommonConfig();
+        config.setMaxIdleConnections(1);
+        config.setKeepAliveMillis(1000);
+        config.setMaxRequests(1);
+        config.setMaxRequestsPerHost(1);
+        config.setRetryStatuses(new int[]{503});
+        config.setRetryMaxAttempts(2);
+        config.setRetryMaxDelayMillis(2000);
+        config.setRetryBudgetRatio(0.1);
+        config.setRetryBudgetCapacity(10);
+        client.destroy();
+        client = new CommonAPIClient(config, registry);
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("fast"));
+        server.enqueue(new MockResponse().setBody("retried"));
+
+        //test
+        CompletableFuture<Optional<String>> retried = client.getResponseFromDummyAPIAsync(server.url("/api/v1/employee/7").toString(),
+                Constants.HttpMethods.GET.toString(), Optional.empty());
+        server.takeRequest();
+        // the only dispatcher slot is free while the retry waits out its backoff
+        Optional<String> fast = client.getResponseFromDummyAPIAsync(server.url("/api/v1/employees").toString(),
+                Constants.HttpMethods.GET.toString(), Optional.empty()).get(500, TimeUnit.MILLISECONDS);
+
+        assertEquals("fast", fast.orElseThrow());
+        assertEquals("retried", retried.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1L, ((Map<?, ?>) client.getClientStats().get("retries")).get("GET /api/v1/employee/{id}"));
+    }
+
+    @Test
+    void callsAreMeasuredInRegistryOfClient() throws Exception {
+        CommonConfig config = new CommonConfig();
+        config.setMaxIdleConnections(1);
+        config.setKeepAliveMillis(1000);
+        config.setMaxRequests(8);
+        config.setMaxRequestsPerHost(8);
+        config.setRetryStatuses(new int[0]);
+        config.setCoalescingEnabled(true);
+        client.destroy();
+        client = new CommonAPIClient(config, registry);
+        server.enqueue(new MockResponse().setBody("7"));
+        server.enqueue(new MockResponse().setBody("8"));
+        server.enqueue(new MockResponse().setBody("[]").setBodyDelay(300, TimeUnit.MILLISECONDS));
+        String roster = server.url("/api/v1/employees").toString();
+
+        //test
+        get(server.url("/api/v1/employee/7").toString());
+        get(server.url("/api/v1/employee/8").toString());
+        CompletableFuture<Optional<String>> first = client.getResponseFromDummyAPIAsync(roster, Constants.HttpMethods.GET.toString(), Optional.empty());
+        CompletableFuture<Optional<String>> joined = client.getResponseFromDummyAPIAsync(roster, Constants.HttpMethods.GET.toString(), Optional.empty());
+
+        assertEquals("[]", first.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals("[]", joined.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals(2, registry.get("upstream.requests").tags("uri", "/api/v1/employee/{id}", "status", "200").timer().count());
+        assertEquals(1, registry.get("upstream.requests").tags("uri", "/api/v1/employees").timer().count());
+        assertEquals(1.0, registry.get("upstream.coalesced").tags("uri", "/api/v1/employees").counter().count());
+    }
+
+    @Test
+    void destroyReleasesThreadsOfClient() throws Exception {
+        CompletableFuture<Optional<String>> late = new CompletableFuture<>();
+
+        //test
+        client.destroy();
+
+        assertTrue(client.getClient().dispatcher().executorService().isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> client.getInterceptor().schedule(() -> late.complete(Optional.empty()), 0));
+        CompletableFuture<Optional<String>> call = client.getResponseFromDummyAPIAsync(server.url("/api/v1/employees").toString(),
+                Constants.HttpMethods.GET.toString(), Optional.empty());
+        assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private CommonAPIClient hedgingClient() {
+        CommonConfig config = new CommonConfig();
+        config.setMaxIdleConnections(2);
+        config.setKeepAliveMillis(1000);
+        config.setMaxRequests(8);
+        config.setMaxRequestsPerHost(8);
+        config.setRetryStatuses(new int[0]);
+        config.setHedgeEnabled(true);
+        config.setHedgeDelayPercentile(95);
+        config.setHedgeMinDelayMillis(100);
+        config.setHedgeMinSamples(1);
+        config.setHedgeBudgetRatio(0.1);
+        config.setHedgeBudgetCapacity(1);
+        return new CommonAPIClient(config, registry);
+    }
+
+    private Optional<String> get(String url) throws Exception {
+        return client.getResponseFromDummyAPI(url, Constants.HttpMethods.GET.toString(), Optional.empty(), reader);
+    }
+}
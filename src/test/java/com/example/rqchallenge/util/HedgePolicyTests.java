@@ -0,0 +1,63 @@
+package com.example.rqchallenge.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Request;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgePolicyTests {
+
+    Request byId = new Request.Builder().url("http://localhost/api/v1/employee/7").build();
+    Request otherId = new Request.Builder().url("http://localhost/api/v1/employee/8").build();
+
+    @Test
+    void delayFollowsLatencyPercentileOfEndpoint() {
+        HedgePolicy policy = new HedgePolicy(90, 5, 20, new RequestBudget(0.1, 1), new SimpleMeterRegistry());
+
+        for (int i = 1; i < 20; i++) {
+            policy.record(byId, TimeUnit.MILLISECONDS.toNanos(i * 10));
+        }
+        assertEquals(-1, policy.delayMillis(byId));
+        policy.record(byId, TimeUnit.MILLISECONDS.toNanos(200));
+
+        // 20 samples of 10..200 ms, the 18th is the 90th percentile, shared by every ID of the endpoint
+        assertEquals(180, policy.delayMillis(otherId));
+        assertTrue(policy.isHedged(otherId));
+        assertFalse(policy.isHedged(new Request.Builder().url("http://localhost/api/v1/employee/8").delete().build()));
+    }
+
+    @Test
+    void hedgesAreBoundedByBudget() {
+        HedgePolicy policy = new HedgePolicy(95, 5, 1, new RequestBudget(0.5, 1), new SimpleMeterRegistry());
+
+        assertTrue(policy.tryAcquire(byId));
+        assertFalse(policy.tryAcquire(byId));
+        policy.deposit();
+        policy.deposit();
+        assertTrue(policy.tryAcquire(byId));
+        assertEquals(2L, policy.getStats().get("sent"));
+        assertEquals(1L, policy.getStats().get("denied"));
+    }
+
+    @Test
+    void closeDropsHedgesNotSentYet() throws Exception {
+        HedgePolicy policy = new HedgePolicy(95, 5, 1, new RequestBudget(0.5, 1), new SimpleMeterRegistry());
+        AtomicBoolean hedged = new AtomicBoolean();
+        policy.schedule(() -> hedged.set(true), 100);
+
+        //test
+        policy.close();
+
+        Thread.sleep(300);
+        assertFalse(hedged.get());
+        assertThrows(RejectedExecutionException.class, () -> policy.schedule(() -> hedged.set(true), 0));
+    }
+}
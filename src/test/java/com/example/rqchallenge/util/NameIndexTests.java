@@ -0,0 +1,63 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NameIndexTests {
+
+    List<Employee> employees = Arrays.asList(
+            new Employee(1, "Tiger Nixon", 320800, "61", ""),
+            new Employee(2, "Zoë Ångström", 170750, "63", ""),
+            new Employee(3, null, 86000, "66", ""),
+            new Employee(4, "Anna Annan", 433060, "22", ""),
+            new Employee(5, "ÅSA ÖBERG", 162700, "33", ""));
+
+    NameIndex index = NameIndex.of(EmployeeStore.of(employees), ParallelSearch.SEQUENTIAL);
+
+    @Test
+    void matchesAsNormalizedNameStrings() {
+        for (String term : Arrays.asList("", "a", "an", "ann", "annan", "ö", "öm", "ström", "åsa", "åsa ö", "ë å", "xyz", "nixon ")) {
+            for (boolean prefix : new boolean[]{false, true}) {
+                int[] expected = IntStream.range(0, employees.size()).filter(position -> {
+                    String name = NameIndex.normalize(employees.get(position).getEmployeeName());
+                    String normalized = NameIndex.normalize(term);
+                    return prefix ? name.startsWith(normalized) || name.contains(" " + normalized) : name.contains(normalized);
+                }).toArray();
+
+                assertArrayEquals(expected, index.match(term, prefix), term + (prefix ? " as prefix" : ""));
+            }
+        }
+    }
+
+    @Test
+    void sparsePositionsSurviveLongGaps() {
+        List<Employee> roster = new ArrayList<>();
+        for (int id = 0; id < 40_000; id++) {
+            // gaps of 1, 200 and 20000 positions take one, two and three bytes
+            String name = id % 20_000 == 7 ? "Ashton Cox" : id % 200 == 3 ? "Cedric Kelly" : "Tiger Nixon";
+            roster.add(new Employee(id, name, 100, "30", ""));
+        }
+        NameIndex large = NameIndex.of(EmployeeStore.of(roster), ParallelSearch.SEQUENTIAL);
+
+        assertArrayEquals(new int[]{7, 20_007}, large.match("cox", false));
+        assertArrayEquals(IntStream.range(0, 40_000).filter(id -> id % 200 == 3 && id % 20_000 != 7).toArray(), large.match("kel", true));
+        assertEquals(40_000 - 202, large.match("tiger nix", true).length);
+    }
+
+    @Test
+    void namesReadBackNormalized() {
+        assertEquals(5, index.size());
+        assertEquals("zoë ångström", index.nameAt(1));
+        assertEquals("", index.nameAt(2));
+        assertEquals("åsa öberg", index.nameAt(4));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.rqchallenge.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OkHttpInterceptorTests {
+
+    MockWebServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    OkHttpInterceptor interceptor(RequestBudget budget) {
+        return new OkHttpInterceptor(new RetryPolicy(3, 1, 10, new HashSet<>(Arrays.asList(429, 503)), budget), new SimpleMeterRegistry());
+    }
+
+    Response call(OkHttpInterceptor interceptor, Request request) throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+        return client.newCall(request).execute();
+    }
+
+    @Test
+    void retriesRetryableStatusOfIdempotentRequest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{}"));
+        OkHttpInterceptor interceptor = interceptor(new RequestBudget(0.1, 10));
+
+        //test
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/employee/7")).build())) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2L, interceptor.getRetryCounts().get("GET /api/v1/employee/{id}"));
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentOrNonRetryable() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        OkHttpInterceptor interceptor = interceptor(new RequestBudget(0.1, 10));
+
+        //test
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/create"))
+                .post(RequestBody.create("{}", null)).build())) {
+            assertEquals(503, response.code());
+        }
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/employees")).build())) {
+            assertEquals(304, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void doesNotRetryNotModifiedEvenIfListed() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(304));
+        OkHttpInterceptor interceptor = new OkHttpInterceptor(new RetryPolicy(3, 1, 10, new HashSet<>(Arrays.asList(304, 503)),
+                new RequestBudget(0.1, 10)), new SimpleMeterRegistry());
+
+        //test
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/employees"))
+                .header("If-None-Match", "\"v1\"").build())) {
+            assertEquals(304, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, interceptor.getRetryCounts().size());
+    }
+
+    @Test
+    void maxAttemptsIncludeFirstOne() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{}"));
+        OkHttpInterceptor interceptor = interceptor(new RequestBudget(0.1, 10));
+
+        //test
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/employees")).build())) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2L, interceptor.getRetryCounts().get("GET /api/v1/employees"));
+    }
+
+    @Test
+    void stopsRetryingWhenBudgetIsSpent() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        OkHttpInterceptor interceptor = interceptor(new RequestBudget(0.1, 1));
+
+        //test
+        try (Response response = call(interceptor, new Request.Builder().url(server.url("/api/v1/employees")).build())) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+}
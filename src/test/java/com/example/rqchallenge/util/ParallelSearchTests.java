@@ -0,0 +1,47 @@
+package com.example.rqchallenge.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelSearchTests {
+
+    ParallelSearch parallel = new ParallelSearch(4, 1000);
+
+    @AfterEach
+    void tearDown() {
+        parallel.destroy();
+    }
+
+    @Test
+    void filterKeepsOrderAcrossChunks() {
+        int[] expected = IntStream.range(0, 200_000).filter(i -> i % 7 == 3).toArray();
+
+        assertArrayEquals(expected, parallel.filter(200_000, i -> i % 7 == 3));
+        assertArrayEquals(new int[]{3}, parallel.filter(10, i -> i % 7 == 3));
+    }
+
+    @Test
+    void fillRunsOnSearchPoolAboveThreshold() {
+        String[] threads = parallel.fill(new String[100_000], i -> Thread.currentThread().getName());
+
+        assertTrue(threads[0].startsWith("employee-search-"));
+        assertFalse(parallel.fill(new String[10], i -> Thread.currentThread().getName())[0].startsWith("employee-search-"));
+        assertEquals(100_000, threads.length);
+    }
+
+    @Test
+    void destroyLeavesOtherInstancesRunning() {
+        ParallelSearch other = new ParallelSearch(4, 1000);
+        other.destroy();
+
+        assertEquals(100_000, parallel.filter(100_000, i -> true).length);
+        assertEquals(10, ParallelSearch.SEQUENTIAL.filter(10, i -> true).length);
+    }
+}
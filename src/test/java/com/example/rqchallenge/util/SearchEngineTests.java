@@ -0,0 +1,155 @@
+package com.example.rqchallenge.util;
+
+import com.example.rqchallenge.employees.Employee;
+import com.example.rqchallenge.employees.EmployeeSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchEngineTests {
+
+    SearchEngine engine = new SearchEngine();
+
+    EmployeeSnapshot snapshot(Employee... employees) {
+        return new EmployeeSnapshot(Arrays.asList(employees), 1, System.currentTimeMillis());
+    }
+
+    @Test
+    void getHighestSalaryOfEmployees() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""));
+
+        assertEquals(433060, engine.getHighestSalaryOfEmployees(snapshot));
+    }
+
+    @Test
+    void getHighestSalaryOfEmptyRoster() {
+        EmployeeSnapshot snapshot = new EmployeeSnapshot(Collections.emptyList(), 1, System.currentTimeMillis());
+
+        assertThrows(NoSuchElementException.class, () -> engine.getHighestSalaryOfEmployees(snapshot));
+    }
+
+    @Test
+    void getHighestSalaryOfRosterWithoutSalaries() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", null, "63", ""),
+                new Employee(3, "Ashton Cox", null, "66", ""));
+
+        assertThrows(NoSuchElementException.class, () -> engine.getHighestSalaryOfEmployees(snapshot));
+    }
+
+    @Test
+    void getTopRecordsBasedOnSalary() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Airi Satou", 170750, "33", ""));
+
+        List<String> names = engine.getTopRecordsBasedOnSalary(snapshot, 3);
+
+        assertEquals(Arrays.asList("Cedric Kelly", "Garrett Winters", "Airi Satou"), names);
+        assertEquals(4, engine.getTopRecordsBasedOnSalary(snapshot, 10).size());
+    }
+
+    @Test
+    void searchByName() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Garrett Cox", 170750, "33", ""));
+
+        assertEquals(2, engine.searchByName(snapshot, "COX").size());
+        assertEquals(2, engine.searchByName(snapshot, "ox").size());
+        assertEquals(1, engine.searchByName(snapshot, "rett w").size());
+        assertEquals(0, engine.searchByName(snapshot, "xyz").size());
+        assertEquals(4, engine.searchByName(snapshot, "").size());
+    }
+
+    @Test
+    void searchByNameWithOptions() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Garrett Cox", 170750, "33", ""));
+
+        assertEquals(0, engine.searchByName(snapshot, new NameQuery("rett", true, false, 0, null)).size());
+        assertEquals(2, engine.searchByName(snapshot, new NameQuery("co", true, false, 0, null)).size());
+        List<Employee> tokens = engine.searchByName(snapshot, new NameQuery("cox  garr", false, true, 0, null));
+        assertEquals(1, tokens.size());
+        assertEquals(5, tokens.get(0).getId());
+        List<Employee> page = engine.searchByName(snapshot, new NameQuery("e", false, false, 1, 2));
+        assertEquals(Arrays.asList(4, 5), Arrays.asList(page.get(0).getId(), page.get(1).getId()));
+    }
+
+    @Test
+    void searchByNameAfterId() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(9, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(null, "Cedric Cox", 433060, "22", ""),
+                new Employee(5, "Garrett Cox", 170750, "33", ""),
+                new Employee(7, "Airi Cox", 162700, "33", ""));
+
+        assertEquals(Arrays.asList(3, 5), ids(engine.searchByName(snapshot, new NameQuery("cox", false, false, 0, 2, Integer.MIN_VALUE))));
+        assertEquals(Arrays.asList(7), ids(engine.searchByName(snapshot, new NameQuery("cox", false, false, 0, 2, 5))));
+        assertEquals(Arrays.asList(3, 5, 7, 9), ids(engine.pageById(snapshot, null, 10)));
+        assertEquals(Arrays.asList(7, 9), ids(engine.pageById(snapshot, 5, 2)));
+        assertEquals(0, engine.pageById(snapshot, Integer.MAX_VALUE, 2).size());
+    }
+
+    @Test
+    void searchByRange() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "066", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Garrett Cox", 170750, "33", ""),
+                new Employee(6, "Airi Satou", null, "unknown", ""));
+
+        assertEquals(Arrays.asList(2, 5, 3), ids(engine.searchByRange(snapshot, query(86000, 170750, null, null, null))));
+        assertEquals(Arrays.asList(2, 3), ids(engine.searchByRange(snapshot, query(null, null, 60, 70, null))));
+        assertEquals(Arrays.asList(5), ids(engine.searchByRange(snapshot, query(100000, null, null, 40, "garrett"))));
+        assertEquals(Arrays.asList(4, 2, 5, 3), ids(engine.searchByRange(snapshot, query(null, null, null, null, null))));
+        assertEquals(0, engine.searchByRange(snapshot, query(500000, null, null, null, null)).size());
+    }
+
+    @Test
+    void searchByRangeSortedAndPaged() {
+        EmployeeSnapshot snapshot = snapshot(
+                new Employee(2, "Garrett Winters", 170750, "63", ""),
+                new Employee(3, "Ashton Cox", 86000, "66", ""),
+                new Employee(4, "Cedric Kelly", 433060, "22", ""),
+                new Employee(5, "Airi Satou", 170750, "33", ""));
+
+        assertEquals(Arrays.asList(3, 2, 5, 4), ids(engine.searchByRange(snapshot,
+                new RangeQuery(0, null, null, null, null, false, RangeQuery.Sort.SALARY, false, 0, null))));
+        assertEquals(Arrays.asList(5, 3, 4, 2), ids(engine.searchByRange(snapshot,
+                new RangeQuery(0, null, null, null, null, false, RangeQuery.Sort.NAME, false, 0, null))));
+        assertEquals(Arrays.asList(3, 2), ids(engine.searchByRange(snapshot,
+                new RangeQuery(null, null, 20, 70, null, false, RangeQuery.Sort.AGE, true, 0, 2))));
+        assertEquals(Arrays.asList(4, 3), ids(engine.searchByRange(snapshot,
+                new RangeQuery(null, null, 20, 70, null, false, RangeQuery.Sort.ID, true, 1, 2))));
+    }
+
+    private static RangeQuery query(Integer minSalary, Integer maxSalary, Integer minAge, Integer maxAge, String name) {
+        boolean bySalary = minSalary != null || maxSalary != null || (minAge == null && maxAge == null);
+        return new RangeQuery(minSalary, maxSalary, minAge, maxAge, name, false,
+                bySalary ? RangeQuery.Sort.SALARY : RangeQuery.Sort.AGE, bySalary, 0, null);
+    }
+
+    private static List<Integer> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.rqchallenge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return result;
+                })));
+            }
+            while (calls.get() + singleFlight.getCoalescedCount() < 4) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Object> future : futures) {
+                assertSame(result, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(3, singleFlight.getCoalescedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureIsSharedAndNextCallStartsAfresh() throws Exception {
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("upstream down");
+        }));
+
+        assertEquals("fresh", singleFlight.execute("key", () -> "fresh"));
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotCancelSharedCall() {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> first = singleFlight.executeAsync("key", () -> call);
+        CompletableFuture<Object> second = singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+
+        first.cancel(true);
+        call.complete("shared");
+
+        assertFalse(call.isCancelled());
+        assertTrue(first.isCancelled());
+        assertEquals("shared", second.join());
+        assertEquals(1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void joiningCallerIsReportedWithItsKey() {
+        List<String> joined = new ArrayList<>();
+        SingleFlight<String, Object> reporting = new SingleFlight<>(joined::add);
+        CompletableFuture<Object> call = new CompletableFuture<>();
+
+        //test
+        CompletableFuture<Object> first = reporting.executeAsync("key", () -> call);
+        CompletableFuture<Object> second = reporting.executeAsync("key", () -> CompletableFuture.completedFuture("own call"));
+        call.complete("shared");
+
+        assertEquals("shared", first.join());
+        assertEquals("shared", second.join());
+        assertEquals(List.of("key"), joined);
+    }
+}